@@ -0,0 +1,63 @@
+package uk.twl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.twl.stub.StubKeycloakServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Benchmarks {@code POST /users} end to end, from the HTTP request to the application through the Keycloak admin
+ * client to an in-process stub Keycloak.
+ */
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+    private static final String REQUEST_BODY = "{\"username\": \"testuser\", \"password\": \"testpassword\"}";
+
+    private StubKeycloakServer keycloak;
+    private ConfigurableApplicationContext application;
+    private HttpClient httpClient;
+    private HttpRequest createUserRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        keycloak = new StubKeycloakServer();
+        application = SpringApplication.run(KeycloakApplication.class,
+            "--server.port=0",
+            "--keycloak.auth-server-url=" + keycloak.url(),
+            "--keycloak.limits.enabled=false",
+            "--logging.level.root=warn",
+            "--logging.level.org.springframework.web=warn");
+        String port = application.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newHttpClient();
+        createUserRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(REQUEST_BODY))
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        application.close();
+        keycloak.close();
+    }
+
+    @Benchmark
+    public int createUser() throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(createUserRequest, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Unexpected status code " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,40 @@
+package uk.twl.controller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.MethodParameter;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import uk.twl.model.KeycloakUserDto;
+
+import java.util.Map;
+
+/**
+ * Benchmarks the mapping of validation failures to the error response of {@code POST /users}.
+ */
+@State(Scope.Benchmark)
+public class KeycloakUserControllerBenchmark {
+
+    private KeycloakUserExceptionHandler exceptionHandler;
+    private MethodArgumentNotValidException validationException;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        exceptionHandler = new KeycloakUserExceptionHandler();
+        KeycloakUserDto user = KeycloakUserDto.builder().build();
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(user, "keycloakUserDto");
+        bindingResult.addError(new FieldError("keycloakUserDto", "username", "Username is required"));
+        bindingResult.addError(new FieldError("keycloakUserDto", "password", "Password is required"));
+        MethodParameter parameter = new MethodParameter(
+            KeycloakUserController.class.getMethod("createUser", KeycloakUserDto.class, String.class), 0);
+        validationException = new MethodArgumentNotValidException(parameter, bindingResult);
+    }
+
+    @Benchmark
+    public Map<String, String> handleValidationExceptions() {
+        return exceptionHandler.handleValidationExceptions(validationException);
+    }
+}
@@ -0,0 +1,91 @@
+package uk.twl.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.twl.service.KeycloakRepresentations;
+import uk.twl.service.KeycloakUserCodec;
+import uk.twl.service.KeycloakUserCodec.DecodedUser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Benchmarks the deserialization and validation of the {@link KeycloakUserDto} request body of {@code POST /users}.
+ *
+ * <p>{@code bindAndValidate} and {@code decode} compare the regular request path, from the body to the Keycloak
+ * representation of the user, with the {@link KeycloakUserCodec} fast path. Compare their
+ * {@code gc.alloc.rate.norm} for the bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+public class KeycloakUserDtoBenchmark {
+
+    private static final byte[] REQUEST_BODY = "{\"username\": \"testuser\", \"password\": \"testpassword\"}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    private ObjectReader reader;
+    private Validator validator;
+    private KeycloakUserCodec codec;
+    private KeycloakUserDto validUser;
+    private KeycloakUserDto invalidUser;
+
+    @Setup
+    public void setUp() {
+        // Built like the auto-configured mapper of Spring Boot, which also registers the parameter names module
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new ParameterNamesModule()).build();
+        reader = objectMapper.readerFor(KeycloakUserDto.class);
+        validator = Validation.buildDefaultValidatorFactory().getValidator();
+        codec = new KeycloakUserCodec(objectMapper);
+        // Both paths must produce the same user for their allocations to be comparable
+        try {
+            if (!bindAndValidate().getUsername().equals(decode().user().getUsername())) {
+                throw new IllegalStateException("The codec and databinding read different users");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        validUser = KeycloakUserDto.builder().username("testuser").password("testpassword").build();
+        invalidUser = KeycloakUserDto.builder().username("").build();
+    }
+
+    @Benchmark
+    public KeycloakUserDto deserialize() throws IOException {
+        return reader.readValue(REQUEST_BODY);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<KeycloakUserDto>> validateValidUser() {
+        return validator.validate(validUser);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<KeycloakUserDto>> validateInvalidUser() {
+        return validator.validate(invalidUser);
+    }
+
+    @Benchmark
+    public UserRepresentation bindAndValidate() throws IOException {
+        KeycloakUserDto user = reader.readValue(new ByteArrayInputStream(REQUEST_BODY));
+        if (!validator.validate(user).isEmpty()) {
+            throw new IllegalStateException("Invalid user");
+        }
+        return KeycloakRepresentations.newUser(user.getUsername(), user.getPassword());
+    }
+
+    @Benchmark
+    public DecodedUser decode() throws IOException {
+        return codec.read(new ByteArrayInputStream(REQUEST_BODY));
+    }
+}
@@ -0,0 +1,72 @@
+package uk.twl.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.observation.ObservationRegistry;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import uk.twl.exception.KeycloakUserCreationException;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmarks the parts of {@link KeycloakUserService#createUser(String, String)} that run around the Keycloak call:
+ * building the user representation and mapping the response status.
+ *
+ * <p>The service's logging is turned off while benchmarking, so the error status measures the mapping rather than
+ * the appenders the error is logged to.
+ */
+@State(Scope.Benchmark)
+public class KeycloakUserServiceBenchmark {
+
+    @Param({"201", "409", "500"})
+    private int statusCode;
+
+    private KeycloakUserService userService;
+    private Logger serviceLogger;
+    private Level serviceLogLevel;
+
+    @Setup
+    public void setUp() {
+        userService = newUserService();
+        serviceLogger = (Logger) LoggerFactory.getLogger(KeycloakUserService.class);
+        serviceLogLevel = serviceLogger.getLevel();
+        serviceLogger.setLevel(Level.OFF);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serviceLogger.setLevel(serviceLogLevel);
+    }
+
+    @Benchmark
+    public UserRepresentation buildUserRepresentation() {
+        return KeycloakRepresentations.newUser("testuser", "testpassword");
+    }
+
+    @Benchmark
+    public Object mapResponseStatus() {
+        try {
+            userService.checkCreateStatus(statusCode, "testuser");
+            return null;
+        } catch (KeycloakUserCreationException e) {
+            return e;
+        }
+    }
+
+    // The status mapping calls none of the collaborators, which are mocked only to build the service
+    private static KeycloakUserService newUserService() {
+        return new KeycloakUserService(mock(Keycloak.class), mock(KeycloakAdminGateway.class),
+            mock(KeycloakUserDtoValidator.class), mock(AsyncTaskExecutor.class), mock(KeycloakUsernameIndex.class),
+            mock(KeycloakClientRegistry.class), mock(KeycloakRetryPolicy.class), mock(KeycloakUserCache.class),
+            mock(KeycloakPartialImporter.class), ObservationRegistry.NOOP);
+    }
+}
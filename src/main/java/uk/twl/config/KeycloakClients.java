@@ -0,0 +1,129 @@
+package uk.twl.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.MicrometerHttpRequestExecutor;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.keycloak.admin.client.JacksonProvider;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+
+import javax.ws.rs.client.ClientBuilder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory methods for the Keycloak admin clients and the HTTP connection pools they send their requests through.
+ */
+public final class KeycloakClients {
+
+    private KeycloakClients() {
+    }
+
+    /**
+     * Creates a pool of HTTP connections to Keycloak.
+     *
+     * @param httpProperties the HTTP connection properties
+     * @return a new connection pool
+     */
+    public static PoolingHttpClientConnectionManager newConnectionManager(KeycloakHttpProperties httpProperties) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(httpProperties.getPoolSize());
+        connectionManager.setDefaultMaxPerRoute(httpProperties.getMaxPerRoute());
+        connectionManager.setValidateAfterInactivity((int) httpProperties.getValidateAfterInactivity().toMillis());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+            .setSoTimeout((int) httpProperties.getReadTimeout().toMillis())
+            .setSoReuseAddress(httpProperties.isReuseAddress())
+            .setSoKeepAlive(true)
+            .setTcpNoDelay(true)
+            .build());
+        return connectionManager;
+    }
+
+    /**
+     * Creates the executor that sends each HTTP request over its leased connection, timing the exchange as
+     * {@code httpcomponents.httpclient.request} and tracing it as a client span whose context is propagated to
+     * Keycloak in the {@code traceparent} header.
+     *
+     * <p>The span covers the exchange alone: the connection lease happens before it, within the span of the caller.
+     * Request URIs are recorded without their query, which carries search terms and paging.
+     *
+     * @param meterRegistry the registry to publish the request metrics to
+     * @param observationRegistry the registry to trace the requests with
+     * @return a new request executor
+     */
+    public static HttpRequestExecutor newRequestExecutor(MeterRegistry meterRegistry,
+                                                         ObservationRegistry observationRegistry) {
+        return MicrometerHttpRequestExecutor.builder(meterRegistry)
+            .observationRegistry(observationRegistry)
+            .uriMapper(request -> {
+                String uri = request.getRequestLine().getUri();
+                int query = uri.indexOf('?');
+                return query < 0 ? uri : uri.substring(0, query);
+            })
+            .build();
+    }
+
+    /**
+     * Creates an HTTP client that sends its requests through the specified connection pool.
+     *
+     * @param connectionManager the pool of HTTP connections to Keycloak
+     * @param httpProperties the HTTP connection properties
+     * @param requestExecutor the executor sending each request over its leased connection
+     * @return a new HTTP client
+     */
+    public static CloseableHttpClient newHttpClient(PoolingHttpClientConnectionManager connectionManager,
+                                                    KeycloakHttpProperties httpProperties,
+                                                    HttpRequestExecutor requestExecutor) {
+        long keepAlive = httpProperties.getKeepAlive().toMillis();
+        return HttpClientBuilder.create()
+            .setConnectionManager(connectionManager)
+            .setRequestExecutor(requestExecutor)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout((int) httpProperties.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) httpProperties.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) httpProperties.getConnectionRequestTimeout().toMillis())
+                .build())
+            .setKeepAliveStrategy((response, context) -> {
+                long requestedKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return requestedKeepAlive > 0 ? Math.min(requestedKeepAlive, keepAlive) : keepAlive;
+            })
+            .evictExpiredConnections()
+            .evictIdleConnections(httpProperties.getIdleEviction().toMillis(), TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    /**
+     * Creates a Keycloak admin client that authenticates with the client credentials of a client in the specified realm.
+     *
+     * @param serverUrl the URL of the Keycloak server
+     * @param realm the realm the client authenticates in
+     * @param clientId the ID of the client
+     * @param clientSecret the secret of the client
+     * @param grantType the grant type used to obtain access tokens
+     * @param httpClient the HTTP client to send the admin requests with
+     * @return a new Keycloak admin client
+     */
+    public static Keycloak newKeycloak(String serverUrl, String realm, String clientId, String clientSecret,
+                                       String grantType, CloseableHttpClient httpClient) {
+        ResteasyClientBuilder clientBuilder = (ResteasyClientBuilder) ClientBuilder.newBuilder();
+        return KeycloakBuilder.builder()
+            .serverUrl(serverUrl)
+            .realm(realm)
+            .clientId(clientId)
+            .clientSecret(clientSecret)
+            .grantType(grantType)
+            .resteasyClient(clientBuilder
+                .httpEngine(new ApacheHttpClient43Engine(httpClient))
+                .register(JacksonProvider.class, 100)
+                .build())
+            .build();
+    }
+}
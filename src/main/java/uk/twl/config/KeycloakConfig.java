@@ -1,15 +1,38 @@
 package uk.twl.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.keycloak.admin.client.Keycloak;
-import org.keycloak.admin.client.KeycloakBuilder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.task.AsyncTaskExecutor;
+import uk.twl.service.BalancingHttpClient;
+import uk.twl.service.KeycloakAdminGateway;
+import uk.twl.service.KeycloakClientPrewarmer;
+import uk.twl.service.KeycloakClientRegistry;
+import uk.twl.service.KeycloakNodeBalancer;
+import uk.twl.service.KeycloakTokenRefresher;
+import uk.twl.service.KeycloakUserService;
+import uk.twl.service.KeycloakUsernameIndex;
 
 /**
  * Configuration class for the Keycloak admin client.
  */
 @Configuration
+@EnableConfigurationProperties({KeycloakHttpProperties.class, KeycloakTokenProperties.class,
+    KeycloakUsernameIndexProperties.class, KeycloakIdempotencyProperties.class, KeycloakJobProperties.class,
+    KeycloakTenantProperties.class, KeycloakNodeProperties.class, KeycloakUserCacheProperties.class,
+    KeycloakPartialImportProperties.class})
+@ImportRuntimeHints(KeycloakRuntimeHints.class)
 public class KeycloakConfig {
 
     @Value("${keycloak.auth-server-url}")
@@ -27,19 +50,148 @@ public class KeycloakConfig {
     @Value("${keycloak.credentials.grantType}")
     private String grantType;
 
+    /**
+     * Creates the pool of HTTP connections to Keycloak.
+     *
+     * @param httpProperties the HTTP connection properties
+     * @return a new connection pool
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager keycloakConnectionManager(KeycloakHttpProperties httpProperties) {
+        return KeycloakClients.newConnectionManager(httpProperties);
+    }
+
+    /**
+     * Creates the balancer that spreads the Keycloak admin calls over the nodes listed under {@code keycloak.nodes}.
+     *
+     * @param nodeProperties the Keycloak node properties
+     * @param meterRegistry the registry to publish the node metrics to
+     * @return a new node balancer
+     */
+    @Bean
+    public KeycloakNodeBalancer keycloakNodeBalancer(KeycloakNodeProperties nodeProperties, MeterRegistry meterRegistry) {
+        return new KeycloakNodeBalancer(nodeProperties, meterRegistry);
+    }
+
+    /**
+     * Creates the HTTP client the Keycloak admin client sends its requests with, spreading them over the Keycloak
+     * nodes if any are configured.
+     *
+     * @param keycloakConnectionManager the pool of HTTP connections to Keycloak
+     * @param httpProperties the HTTP connection properties
+     * @param keycloakNodeBalancer the balancer over the Keycloak nodes
+     * @param meterRegistry the registry to publish the request metrics to
+     * @param observationRegistry the registry to trace the requests with, if tracing is set up
+     * @return a new HTTP client
+     */
+    @Bean
+    public CloseableHttpClient keycloakHttpClient(PoolingHttpClientConnectionManager keycloakConnectionManager,
+                                                  KeycloakHttpProperties httpProperties,
+                                                  KeycloakNodeBalancer keycloakNodeBalancer,
+                                                  MeterRegistry meterRegistry,
+                                                  ObjectProvider<ObservationRegistry> observationRegistry) {
+        CloseableHttpClient httpClient = KeycloakClients.newHttpClient(keycloakConnectionManager, httpProperties,
+            KeycloakClients.newRequestExecutor(meterRegistry,
+                observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP)));
+        return keycloakNodeBalancer.isEnabled() ? new BalancingHttpClient(httpClient, keycloakNodeBalancer) : httpClient;
+    }
+
+    /**
+     * Publishes the size, leased and pending connections of the Keycloak connection pool as metrics.
+     *
+     * @param keycloakConnectionManager the pool of HTTP connections to Keycloak
+     * @return the connection pool metrics
+     */
+    @Bean
+    public MeterBinder keycloakConnectionPoolMetrics(PoolingHttpClientConnectionManager keycloakConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(keycloakConnectionManager, "keycloak-admin");
+    }
+
     /**
      * Creates a new instance of the Keycloak admin client.
      *
+     * @param keycloakHttpClient the HTTP client to send the admin requests with
      * @return a new Keycloak instance
      */
     @Bean
-    public Keycloak keycloak() {
-        return KeycloakBuilder.builder()
-            .serverUrl(keycloakAuthServerUrl)
-            .realm(keycloakRealm)
-            .clientId(keycloakClientId)
-            .clientSecret(keycloakClientSecret)
-            .grantType(grantType)
-            .build();
+    public Keycloak keycloak(CloseableHttpClient keycloakHttpClient) {
+        return KeycloakClients.newKeycloak(keycloakAuthServerUrl, keycloakRealm, keycloakClientId, keycloakClientSecret,
+            grantType, keycloakHttpClient);
+    }
+
+    /**
+     * Creates the background refresher of the Keycloak admin client's access token.
+     *
+     * @param keycloak the Keycloak admin client
+     * @param tokenProperties the access token properties
+     * @param meterRegistry the registry to publish the token metrics to
+     * @return a new token refresher
+     */
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(name = "keycloak.token.proactive-refresh", havingValue = "true", matchIfMissing = true)
+    public KeycloakTokenRefresher keycloakTokenRefresher(Keycloak keycloak, KeycloakTokenProperties tokenProperties,
+                                                         MeterRegistry meterRegistry) {
+        return new KeycloakTokenRefresher(keycloak, tokenProperties, meterRegistry);
+    }
+
+    /**
+     * Creates the index of usernames known to exist in Keycloak and starts warming it up from the configured realm.
+     *
+     * @param keycloak the Keycloak admin client
+     * @param adminGateway the gateway the warm-up calls are made through
+     * @param usernameIndexProperties the username index properties
+     * @param meterRegistry the registry to publish the index metrics to
+     * @return a new username index
+     */
+    @Bean
+    public KeycloakUsernameIndex keycloakUsernameIndex(Keycloak keycloak, KeycloakAdminGateway adminGateway,
+                                                       KeycloakUsernameIndexProperties usernameIndexProperties,
+                                                       MeterRegistry meterRegistry) {
+        KeycloakUsernameIndex usernameIndex =
+            new KeycloakUsernameIndex(keycloak, adminGateway, usernameIndexProperties, meterRegistry);
+        usernameIndex.warmUp(keycloakRealm);
+        return usernameIndex;
+    }
+
+    /**
+     * Creates the registry of the admin clients of the realms managed with their own credentials.
+     *
+     * @param tenantProperties the properties of the realms managed with their own credentials
+     * @param tokenProperties the access token properties
+     * @param keycloakNodeBalancer the balancer over the Keycloak nodes
+     * @param adminGateway the gateway to drop the limits of closed realms from
+     * @param meterRegistry the registry to publish the realm client metrics to
+     * @param observationRegistry the registry to trace the realm clients' requests with, if tracing is set up
+     * @return a new client registry
+     */
+    @Bean
+    public KeycloakClientRegistry keycloakClientRegistry(KeycloakTenantProperties tenantProperties,
+                                                         KeycloakTokenProperties tokenProperties,
+                                                         KeycloakNodeBalancer keycloakNodeBalancer,
+                                                         KeycloakAdminGateway adminGateway,
+                                                         MeterRegistry meterRegistry,
+                                                         ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new KeycloakClientRegistry(keycloakAuthServerUrl, tenantProperties, tokenProperties,
+            keycloakNodeBalancer, adminGateway, meterRegistry,
+            observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+    }
+
+    /**
+     * Creates the pre-warmer that initializes the Keycloak admin client in the background once the application is
+     * ready, enabled with {@code keycloak.prewarm} for when the beans are initialized lazily.
+     *
+     * @param userService the provider of the user service, whose initialization builds the admin client
+     * @param keycloak the provider of the Keycloak admin client
+     * @param tokenRefresher the provider of the access token refresher, if enabled
+     * @param applicationTaskExecutor the executor to pre-warm on
+     * @return a new pre-warmer
+     */
+    @Bean
+    @ConditionalOnProperty(name = "keycloak.prewarm", havingValue = "true")
+    public KeycloakClientPrewarmer keycloakClientPrewarmer(ObjectProvider<KeycloakUserService> userService,
+                                                           ObjectProvider<Keycloak> keycloak,
+                                                           ObjectProvider<KeycloakTokenRefresher> tokenRefresher,
+                                                           AsyncTaskExecutor applicationTaskExecutor) {
+        return new KeycloakClientPrewarmer(userService, keycloak, tokenRefresher, applicationTaskExecutor);
     }
 }
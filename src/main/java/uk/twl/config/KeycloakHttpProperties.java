@@ -0,0 +1,59 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the HTTP connections of the Keycloak admin client.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.http")
+public class KeycloakHttpProperties {
+
+    /**
+     * The maximum number of pooled connections to Keycloak.
+     */
+    private int poolSize = 50;
+
+    /**
+     * The maximum number of pooled connections to a single Keycloak host.
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * The maximum time to wait for a connection to Keycloak to be established.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * The maximum time to wait for data from Keycloak once connected.
+     */
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    /**
+     * The maximum time to wait for a connection to become available in the pool.
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(5);
+
+    /**
+     * The maximum time an idle connection is kept alive for reuse, unless Keycloak asks for a shorter time.
+     */
+    private Duration keepAlive = Duration.ofMinutes(1);
+
+    /**
+     * The time after which idle connections are evicted from the pool.
+     */
+    private Duration idleEviction = Duration.ofSeconds(30);
+
+    /**
+     * The time a connection may be idle before it is checked for staleness when it is leased again.
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    /**
+     * Whether sockets may reuse local addresses that are still in the TIME_WAIT state.
+     */
+    private boolean reuseAddress = true;
+}
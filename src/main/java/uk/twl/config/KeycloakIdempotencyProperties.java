@@ -0,0 +1,24 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the outcomes of user creations kept by idempotency key.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.idempotency")
+public class KeycloakIdempotencyProperties {
+
+    /**
+     * The maximum number of idempotency keys whose outcome is kept.
+     */
+    private long maximumSize = 100_000;
+
+    /**
+     * How long the outcome of an idempotency key is replayed after it was first sent.
+     */
+    private Duration expireAfterWrite = Duration.ofHours(24);
+}
@@ -0,0 +1,34 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the user creations carried out in the background.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.jobs")
+public class KeycloakJobProperties {
+
+    /**
+     * The number of background user creations run at the same time.
+     */
+    private int concurrency = 8;
+
+    /**
+     * The maximum number of background user creations waiting to run, beyond which new ones are rejected.
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * How long the outcome of a background user creation can be polled after it was accepted.
+     */
+    private Duration retention = Duration.ofHours(1);
+
+    /**
+     * The maximum number of background user creations whose state is kept.
+     */
+    private long maximumSize = 100_000;
+}
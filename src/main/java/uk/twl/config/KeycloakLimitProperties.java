@@ -0,0 +1,88 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the rate and concurrency limits of the calls made to Keycloak, per realm.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.limits")
+public class KeycloakLimitProperties {
+
+    /**
+     * Whether calls to Keycloak are rate and concurrency limited.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The limits of realms that are not listed in {@link #realms}.
+     */
+    private Limit defaults = new Limit();
+
+    /**
+     * The limits of specific realms, replacing {@link #defaults} for those realms.
+     */
+    private Map<String, Limit> realms = new HashMap<>();
+
+    /**
+     * Returns the limits of the specified realm.
+     *
+     * @param realm the realm
+     * @return the limits of the realm, or the default limits if it has none of its own
+     */
+    public Limit forRealm(String realm) {
+        return realms.getOrDefault(realm, defaults);
+    }
+
+    /**
+     * The rate and concurrency limits of the calls made to a realm.
+     */
+    @Data
+    public static class Limit {
+
+        /**
+         * The steady number of calls per second, or 0 for no rate limit.
+         */
+        private double rate = 100;
+
+        /**
+         * The number of calls that may be made at once above the steady rate after a quiet period.
+         */
+        private int burst = 50;
+
+        /**
+         * How long a call waits for the rate limit before it is rejected.
+         */
+        private Duration maxWait = Duration.ofMillis(500);
+
+        /**
+         * The number of concurrent calls allowed at startup.
+         */
+        private int initialConcurrency = 20;
+
+        /**
+         * The lowest the concurrency limit is lowered to while Keycloak is struggling.
+         */
+        private int minConcurrency = 2;
+
+        /**
+         * The highest the concurrency limit is raised to while Keycloak copes.
+         */
+        private int maxConcurrency = 50;
+
+        /**
+         * The call latency above which Keycloak is considered overloaded.
+         */
+        private Duration latencyThreshold = Duration.ofSeconds(1);
+
+        /**
+         * The factor the concurrency limit is multiplied by when Keycloak is overloaded.
+         */
+        private double backoffRatio = 0.9;
+    }
+}
@@ -0,0 +1,32 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for spreading the Keycloak admin calls over the nodes of a Keycloak cluster.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.nodes")
+public class KeycloakNodeProperties {
+
+    /**
+     * The base URLs of the Keycloak nodes, such as {@code http://keycloak-1:8080}. When empty, every call is sent to
+     * {@code keycloak.auth-server-url}.
+     */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * The number of consecutive I/O errors or 5xx responses after which a node is ejected.
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * How long an ejected node is not sent any calls.
+     */
+    private Duration ejectionDuration = Duration.ofSeconds(30);
+}
@@ -0,0 +1,30 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for sending batches and imports of users through the Keycloak realm partial import API.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.batch.partial-import")
+public class KeycloakPartialImportProperties {
+
+    /**
+     * Whether batches and imports are sent as chunks of users through the partial import API, instead of one request
+     * per user.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The number of users sent in a single partial import request.
+     */
+    private int chunkSize = 500;
+
+    /**
+     * What happens to a user that already exists: SKIP reports it as a duplicate, OVERWRITE replaces it, and FAIL
+     * fails its whole chunk.
+     */
+    private PartialImportRepresentation.Policy ifResourceExists = PartialImportRepresentation.Policy.SKIP;
+}
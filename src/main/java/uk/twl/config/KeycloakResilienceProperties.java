@@ -0,0 +1,87 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the circuit breaker and bulkhead around the Keycloak admin calls.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.resilience")
+public class KeycloakResilienceProperties {
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Bulkhead bulkhead = new Bulkhead();
+
+    /**
+     * Configuration properties for the circuit breaker that stops calling Keycloak while it is failing.
+     */
+    @Data
+    public static class CircuitBreaker {
+
+        /**
+         * Whether the circuit breaker is enabled.
+         */
+        private boolean enabled = true;
+
+        /**
+         * The percentage of failed calls, I/O errors and 5xx responses, at which the circuit opens.
+         */
+        private float failureRateThreshold = 50;
+
+        /**
+         * The percentage of slow calls at which the circuit opens.
+         */
+        private float slowCallRateThreshold = 100;
+
+        /**
+         * The duration above which a call is considered slow.
+         */
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(5);
+
+        /**
+         * The number of most recent calls the failure and slow call rates are calculated over.
+         */
+        private int slidingWindowSize = 50;
+
+        /**
+         * The minimum number of calls before the failure and slow call rates are calculated.
+         */
+        private int minimumNumberOfCalls = 20;
+
+        /**
+         * How long the circuit stays open before trial calls are let through.
+         */
+        private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+
+        /**
+         * The number of trial calls let through while the circuit is half open.
+         */
+        private int permittedNumberOfCallsInHalfOpenState = 5;
+    }
+
+    /**
+     * Configuration properties for the bulkhead that limits the number of concurrent calls to Keycloak.
+     */
+    @Data
+    public static class Bulkhead {
+
+        /**
+         * Whether the bulkhead is enabled.
+         */
+        private boolean enabled = true;
+
+        /**
+         * The maximum number of concurrent calls to Keycloak.
+         */
+        private int maxConcurrentCalls = 50;
+
+        /**
+         * How long a call waits for a free slot before it is rejected.
+         */
+        private Duration maxWaitDuration = Duration.ZERO;
+    }
+}
@@ -0,0 +1,44 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for retrying Keycloak admin calls that failed in a way that is safe to retry.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.retry")
+public class KeycloakRetryProperties {
+
+    /**
+     * Whether failed Keycloak admin calls are retried.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The maximum number of attempts of a call, including the first one.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * The upper bound of the random wait before the first retry, doubled for every further retry.
+     */
+    private Duration initialBackoff = Duration.ofMillis(100);
+
+    /**
+     * The largest upper bound of the random wait before a retry.
+     */
+    private Duration maxBackoff = Duration.ofSeconds(2);
+
+    /**
+     * The number of retries earned by every call, so retries can add at most this fraction to the load on Keycloak.
+     */
+    private double budgetRatio = 0.1;
+
+    /**
+     * The number of retries allowed per second regardless of the number of calls, so a quiet instance can still retry.
+     */
+    private double minRetriesPerSecond = 5;
+}
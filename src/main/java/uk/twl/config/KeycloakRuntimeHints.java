@@ -0,0 +1,121 @@
+package uk.twl.config;
+
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.RealmsResource;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.admin.client.token.TokenService;
+import org.keycloak.representations.AccessTokenResponse;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import uk.twl.exception.DuplicateKeycloakUserException;
+import uk.twl.exception.IdempotencyKeyReuseException;
+import uk.twl.exception.KeycloakCommunicationException;
+import uk.twl.exception.KeycloakUnavailableException;
+import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.exception.KeycloakUserJobQueueFullException;
+import uk.twl.exception.UnknownKeycloakRealmException;
+import uk.twl.logging.MeteredAsyncAppender;
+import uk.twl.model.KeycloakUser;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+import uk.twl.model.KeycloakUserJob;
+import uk.twl.service.KeycloakPartialImporter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Registers the reflection, proxy and resource hints a native image needs for what Spring cannot detect itself.
+ *
+ * <p>The Keycloak admin client is RESTEasy, which implements the admin resource interfaces as JDK proxies, discovers
+ * its providers through service files, and maps the representations with Jackson. The request and response models
+ * are mapped with Jackson and validated with Hibernate Validator, and the status of the exceptions handled by the
+ * controllers is read from their {@code @ResponseStatus}.
+ */
+public class KeycloakRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String RESTEASY_CLIENT_PROXY = "org.jboss.resteasy.client.jaxrs.internal.proxy.ResteasyClientProxy";
+
+    private static final List<Class<?>> ADMIN_RESOURCES = List.of(
+        RealmsResource.class, RealmResource.class, UsersResource.class, UserResource.class, TokenService.class);
+
+    private static final List<String> SERVICE_FILES = List.of(
+        "META-INF/services/javax.ws.rs.ext.Providers",
+        "META-INF/services/javax.ws.rs.ext.RuntimeDelegate",
+        "META-INF/services/javax.ws.rs.client.ClientBuilder");
+
+    private static final List<String> CONSTRAINT_VALIDATORS = List.of(
+        "org.hibernate.validator.internal.constraintvalidators.bv.NotBlankValidator",
+        "org.hibernate.validator.internal.constraintvalidators.bv.NotNullValidator");
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> resource : ADMIN_RESOURCES) {
+            hints.reflection().registerType(resource, MemberCategory.INVOKE_PUBLIC_METHODS);
+            hints.proxies().registerJdkProxy(TypeReference.of(resource), TypeReference.of(RESTEASY_CLIENT_PROXY));
+        }
+        bindingRegistrar.registerReflectionHints(hints.reflection(), UserRepresentation.class,
+            CredentialRepresentation.class, AccessTokenResponse.class, PartialImportRepresentation.class,
+            KeycloakPartialImporter.PartialImportResults.class);
+
+        for (String serviceFile : SERVICE_FILES) {
+            hints.resources().registerPattern(serviceFile);
+            serviceProviders(classLoader, serviceFile).forEach(provider -> hints.reflection()
+                .registerTypeIfPresent(classLoader, provider, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+        }
+
+        bindingRegistrar.registerReflectionHints(hints.reflection(), KeycloakUserDto.class, KeycloakUser.class,
+            KeycloakUserCreationResult.class, KeycloakUserJob.class);
+        hints.reflection().registerType(KeycloakUserDto.class, MemberCategory.DECLARED_FIELDS);
+        CONSTRAINT_VALIDATORS.forEach(validator -> hints.reflection()
+            .registerTypeIfPresent(classLoader, validator, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS));
+
+        // Instantiated and configured by Logback from logback-spring.xml
+        hints.reflection().registerType(MeteredAsyncAppender.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+            MemberCategory.INVOKE_PUBLIC_METHODS);
+
+        Stream.of(KeycloakUserCreationException.class, DuplicateKeycloakUserException.class,
+                KeycloakCommunicationException.class, KeycloakUnavailableException.class,
+                IdempotencyKeyReuseException.class, KeycloakUserJobQueueFullException.class,
+                UnknownKeycloakRealmException.class)
+            .forEach(exception -> hints.reflection().registerType(exception));
+    }
+
+    private static Stream<String> serviceProviders(ClassLoader classLoader, String serviceFile) {
+        try {
+            return Collections.list(classLoader.getResources(serviceFile)).stream()
+                .flatMap(KeycloakRuntimeHints::readProviders);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Stream<String> readProviders(URL serviceFile) {
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(serviceFile.openStream(), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                .map(line -> line.replaceFirst("#.*", "").trim())
+                .filter(line -> !line.isEmpty())
+                .toList()
+                .stream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
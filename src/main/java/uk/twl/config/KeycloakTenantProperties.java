@@ -0,0 +1,71 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for the realms that are managed with their own Keycloak admin client.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.tenants")
+public class KeycloakTenantProperties {
+
+    /**
+     * The credentials of the realms managed with their own admin client and connection pool. Other realms are managed
+     * with the default admin client.
+     */
+    private Map<String, Credentials> realms = new HashMap<>();
+
+    /**
+     * The maximum number of realm admin clients kept open at once.
+     */
+    private long maximumClients = 500;
+
+    /**
+     * How long a realm admin client is kept open after it was last used.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * The HTTP connections of each realm admin client. Kept small, as every open realm client has its own pool.
+     */
+    private KeycloakHttpProperties http = defaultHttpProperties();
+
+    private static KeycloakHttpProperties defaultHttpProperties() {
+        KeycloakHttpProperties http = new KeycloakHttpProperties();
+        http.setPoolSize(10);
+        http.setMaxPerRoute(10);
+        return http;
+    }
+
+    /**
+     * The credentials of a client that is allowed to manage the users of a realm.
+     */
+    @Data
+    public static class Credentials {
+
+        /**
+         * The realm the client authenticates in, the managed realm itself if not set.
+         */
+        private String authRealm;
+
+        /**
+         * The ID of the client.
+         */
+        private String clientId;
+
+        /**
+         * The secret of the client.
+         */
+        private String clientSecret;
+
+        /**
+         * The grant type used to obtain access tokens.
+         */
+        private String grantType = "client_credentials";
+    }
+}
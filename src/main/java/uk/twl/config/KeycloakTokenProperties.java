@@ -0,0 +1,35 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the access token of the Keycloak admin client.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.token")
+public class KeycloakTokenProperties {
+
+    /**
+     * Whether the access token is refreshed in the background before it expires.
+     */
+    private boolean proactiveRefresh = true;
+
+    /**
+     * How long before the access token expires it is refreshed in the background.
+     */
+    private Duration refreshAhead = Duration.ofSeconds(15);
+
+    /**
+     * The remaining validity below which a request refreshes the access token itself. Must be shorter than
+     * {@link #refreshAhead} for the background refresh to happen first.
+     */
+    private Duration minValidity = Duration.ofSeconds(5);
+
+    /**
+     * How long to wait before retrying a failed background refresh.
+     */
+    private Duration retryInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,29 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the cache of user lookups in front of Keycloak.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.user-cache")
+public class KeycloakUserCacheProperties {
+
+    /**
+     * Whether user lookups are cached.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The maximum number of usernames whose lookup is cached.
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * How long a lookup is cached, which bounds how stale an answer about a user changed outside this service can be.
+     */
+    private Duration expireAfterWrite = Duration.ofSeconds(30);
+}
@@ -0,0 +1,39 @@
+package uk.twl.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the in-memory index of usernames known to exist in Keycloak.
+ */
+@Data
+@ConfigurationProperties(prefix = "keycloak.username-index")
+public class KeycloakUsernameIndexProperties {
+
+    /**
+     * Whether creations of usernames known to exist are rejected without calling Keycloak.
+     */
+    private boolean enabled;
+
+    /**
+     * The maximum number of usernames held in the index.
+     */
+    private long maximumSize = 1_000_000;
+
+    /**
+     * How long a username is trusted to exist after it was last confirmed by Keycloak.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    /**
+     * Whether the index is filled from the realm's existing users at startup.
+     */
+    private boolean warmUp = true;
+
+    /**
+     * The number of users fetched from Keycloak per request while warming up the index.
+     */
+    private int pageSize = 500;
+}
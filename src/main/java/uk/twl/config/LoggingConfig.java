@@ -0,0 +1,79 @@
+package uk.twl.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import uk.twl.logging.MeteredAsyncAppender;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Configuration class for the metrics and the correlation IDs of the application logs, whose appenders are configured
+ * in {@code logback-spring.xml}.
+ */
+@Configuration
+public class LoggingConfig {
+
+    /**
+     * Publishes the number of log events each {@link MeteredAsyncAppender} of the root logger dropped because its
+     * queue was full, as the {@code logback.events.dropped} metric tagged by appender.
+     *
+     * @return the dropped log events metrics
+     */
+    @Bean
+    public MeterBinder droppedLogEventsMetrics() {
+        return registry -> {
+            if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext loggerContext)) {
+                return;
+            }
+            Iterator<Appender<ILoggingEvent>> appenders =
+                loggerContext.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+            while (appenders.hasNext()) {
+                if (appenders.next() instanceof MeteredAsyncAppender appender) {
+                    FunctionCounter.builder("logback.events.dropped", appender, MeteredAsyncAppender::getDroppedEvents)
+                        .description("Log events dropped because the asynchronous appender queue was full")
+                        .tag("appender", appender.getName())
+                        .register(registry);
+                }
+            }
+        };
+    }
+
+    /**
+     * Copies the MDC of the submitting thread, and with it the request correlation ID, to the tasks run on the
+     * application task executor and the background job workers.
+     *
+     * @return the task decorator
+     */
+    @Bean
+    public TaskDecorator mdcTaskDecorator() {
+        return task -> {
+            Map<String, String> context = MDC.getCopyOfContextMap();
+            if (context == null) {
+                return task;
+            }
+            return () -> {
+                Map<String, String> previous = MDC.getCopyOfContextMap();
+                MDC.setContextMap(context);
+                try {
+                    task.run();
+                } finally {
+                    if (previous == null) {
+                        MDC.clear();
+                    } else {
+                        MDC.setContextMap(previous);
+                    }
+                }
+            };
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package uk.twl.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Configuration class for the non-blocking Keycloak admin API client used by the {@code reactive} profile.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveKeycloakConfig {
+
+    @Value("${keycloak.auth-server-url}")
+    private String keycloakAuthServerUrl;
+
+    /**
+     * Creates a non-blocking web client for the Keycloak admin API, pooled and timed out according to the
+     * {@code keycloak.http} properties.
+     *
+     * @param webClientBuilder the web client builder configured by Spring Boot
+     * @param httpProperties the HTTP connection properties
+     * @return a new web client
+     */
+    @Bean
+    public WebClient keycloakWebClient(WebClient.Builder webClientBuilder, KeycloakHttpProperties httpProperties) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("keycloak-admin")
+            .maxConnections(httpProperties.getPoolSize())
+            .pendingAcquireTimeout(httpProperties.getConnectionRequestTimeout())
+            .maxIdleTime(httpProperties.getKeepAlive())
+            .evictInBackground(httpProperties.getIdleEviction())
+            .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) httpProperties.getConnectTimeout().toMillis())
+            .option(ChannelOption.SO_REUSEADDR, httpProperties.isReuseAddress())
+            .responseTimeout(httpProperties.getReadTimeout());
+        return webClientBuilder
+            .baseUrl(keycloakAuthServerUrl)
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .build();
+    }
+}
@@ -0,0 +1,132 @@
+package uk.twl.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.twl.service.KeycloakAdminGateway;
+import uk.twl.service.KeycloakRetryPolicy;
+
+/**
+ * Configuration class for the circuit breaker, bulkhead, limits and retries around the Keycloak admin calls.
+ */
+@Configuration
+@EnableConfigurationProperties({KeycloakResilienceProperties.class, KeycloakLimitProperties.class,
+    KeycloakRetryProperties.class})
+public class ResilienceConfig {
+
+    public static final String KEYCLOAK_ADMIN = "keycloak-admin";
+
+    /**
+     * Creates the registry of circuit breakers, whose state and call rates are published as metrics.
+     *
+     * @return a new circuit breaker registry
+     */
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry() {
+        return CircuitBreakerRegistry.ofDefaults();
+    }
+
+    /**
+     * Creates the registry of bulkheads, whose available calls are published as metrics.
+     *
+     * @return a new bulkhead registry
+     */
+    @Bean
+    public BulkheadRegistry bulkheadRegistry() {
+        return BulkheadRegistry.ofDefaults();
+    }
+
+    /**
+     * Creates the circuit breaker that stops calling Keycloak while too many calls fail or are slow.
+     *
+     * <p>I/O errors and 5xx responses count as failures, while 4xx responses such as 409 are answers from a healthy
+     * Keycloak.
+     *
+     * @param circuitBreakerRegistry the circuit breaker registry
+     * @param resilienceProperties the resilience properties
+     * @return the Keycloak admin circuit breaker
+     */
+    @Bean
+    public CircuitBreaker keycloakCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry,
+                                                 KeycloakResilienceProperties resilienceProperties) {
+        KeycloakResilienceProperties.CircuitBreaker properties = resilienceProperties.getCircuitBreaker();
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(KEYCLOAK_ADMIN, CircuitBreakerConfig.custom()
+            .failureRateThreshold(properties.getFailureRateThreshold())
+            .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+            .slowCallDurationThreshold(properties.getSlowCallDurationThreshold())
+            .slidingWindowSize(properties.getSlidingWindowSize())
+            .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+            .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+            .permittedNumberOfCallsInHalfOpenState(properties.getPermittedNumberOfCallsInHalfOpenState())
+            .recordException(KeycloakAdminGateway::isFailure)
+            .recordResult(KeycloakAdminGateway::isFailedResult)
+            .build());
+        if (!properties.isEnabled()) {
+            circuitBreaker.transitionToDisabledState();
+        }
+        return circuitBreaker;
+    }
+
+    /**
+     * Creates the bulkhead that limits how many threads can be waiting on Keycloak at once, so a slow Keycloak
+     * cannot tie up every request thread.
+     *
+     * @param bulkheadRegistry the bulkhead registry
+     * @param resilienceProperties the resilience properties
+     * @return the Keycloak admin bulkhead
+     */
+    @Bean
+    public Bulkhead keycloakBulkhead(BulkheadRegistry bulkheadRegistry,
+                                     KeycloakResilienceProperties resilienceProperties) {
+        KeycloakResilienceProperties.Bulkhead properties = resilienceProperties.getBulkhead();
+        return bulkheadRegistry.bulkhead(KEYCLOAK_ADMIN, BulkheadConfig.custom()
+            .maxConcurrentCalls(properties.isEnabled() ? properties.getMaxConcurrentCalls() : Integer.MAX_VALUE)
+            .maxWaitDuration(properties.getMaxWaitDuration())
+            .build());
+    }
+
+    /**
+     * Creates the policy for retrying Keycloak admin calls that failed transiently.
+     *
+     * @param retryProperties the retry properties
+     * @param meterRegistry the meter registry the retries are counted in
+     * @return the Keycloak retry policy
+     */
+    @Bean
+    public KeycloakRetryPolicy keycloakRetryPolicy(KeycloakRetryProperties retryProperties,
+                                                   MeterRegistry meterRegistry) {
+        return new KeycloakRetryPolicy(retryProperties, meterRegistry);
+    }
+
+    /**
+     * Publishes the state and call rates of the circuit breakers as metrics.
+     *
+     * @param circuitBreakerRegistry the circuit breaker registry
+     * @return the circuit breaker metrics
+     */
+    @Bean
+    public MeterBinder circuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry);
+    }
+
+    /**
+     * Publishes the available calls of the bulkheads as metrics.
+     *
+     * @param bulkheadRegistry the bulkhead registry
+     * @return the bulkhead metrics
+     */
+    @Bean
+    public MeterBinder bulkheadMetrics(BulkheadRegistry bulkheadRegistry) {
+        return TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry);
+    }
+}
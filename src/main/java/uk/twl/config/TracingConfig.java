@@ -0,0 +1,46 @@
+package uk.twl.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.twl.tracing.FileSpanExporter;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration class for tracing the user creations from the controller to the Keycloak HTTP calls.
+ *
+ * <p>Spring Boot traces each request, continuing the trace of an incoming {@code traceparent} header, and exports the
+ * spans to every {@link SpanExporter} bean. The methods annotated with {@code @Observed} get a span of their own, and
+ * the Keycloak HTTP calls get client spans from the request executor of {@link KeycloakClients}.
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Creates the aspect that observes the methods annotated with {@code @Observed}.
+     *
+     * @param observationRegistry the registry to observe the methods with
+     * @return the observed aspect
+     */
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+
+    /**
+     * Creates the exporter that appends the spans to the file set as {@code keycloak.tracing.file}, if any.
+     *
+     * @param file the file to append the spans to
+     * @return a new file span exporter
+     */
+    @Bean
+    @ConditionalOnExpression("!'${keycloak.tracing.file:}'.isEmpty()")
+    public SpanExporter fileSpanExporter(@Value("${keycloak.tracing.file}") Path file) {
+        return new FileSpanExporter(file);
+    }
+}
@@ -0,0 +1,53 @@
+package uk.twl.controller;
+
+import io.micrometer.observation.annotation.Observed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.model.KeycloakUserDto;
+import uk.twl.service.KeycloakUserService;
+
+/**
+ * A controller for managing the users of the tenant realms listed under {@code keycloak.tenants.realms}, for serving many
+ * tenant realms from one instance. Other realms are answered with 404, apart from the configured {@code keycloak.realm}.
+ */
+@RestController
+@RequestMapping("/realms/{realm}/users")
+@Tag(name = "Keycloak User Management")
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class KeycloakRealmUserController {
+
+    private final KeycloakUserService userService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Add a new user to a Keycloak realm", description = "Creates a new user with the specified username and password in the specified Keycloak realm.")
+    @ApiResponse(responseCode = "201", description = "User created successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    @ApiResponse(responseCode = "404", description = "Realm not served")
+    @ApiResponse(responseCode = "409", description = "User already exists")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    @Observed(name = "keycloak.user.request", contextualName = "create-user-request")
+    public void createUser(
+        @Parameter(description = "The realm to add the user to") @PathVariable String realm,
+        @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The user to add to Keycloak", required = true)
+        @RequestBody @Valid KeycloakUserDto user) throws KeycloakUserCreationException {
+        userService.createUser(realm, user.getUsername(), user.getPassword());
+        log.debug("User {} successfully added to Keycloak realm {}", user.getUsername(), realm);
+    }
+}
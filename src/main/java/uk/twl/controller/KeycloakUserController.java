@@ -1,28 +1,53 @@
 package uk.twl.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.observation.annotation.Observed;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.converter.HttpMessageNotReadableException;
-import org.springframework.validation.FieldError;
-import org.springframework.web.bind.MethodArgumentNotValidException;
-import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.exception.KeycloakUserJobQueueFullException;
+import uk.twl.model.KeycloakUser;
+import uk.twl.model.KeycloakUserCreationResult;
 import uk.twl.model.KeycloakUserDto;
+import uk.twl.model.KeycloakUserJob;
+import uk.twl.service.KeycloakUserIdempotencyService;
+import uk.twl.service.KeycloakUserImportService;
+import uk.twl.service.KeycloakUserJobService;
 import uk.twl.service.KeycloakUserService;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.OptionalInt;
 
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 
 /**
@@ -31,43 +56,173 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
 @RestController
 @RequestMapping("/users")
 @Tag(name = "Keycloak User Management")
+@Profile("!reactive")
 @RequiredArgsConstructor
 @Slf4j
 public class KeycloakUserController {
 
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final String CURSOR_PREFIX = "position:";
+
     private final KeycloakUserService userService;
 
+    private final KeycloakUserImportService importService;
+
+    private final KeycloakUserIdempotencyService idempotencyService;
+
+    private final KeycloakUserJobService jobService;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${keycloak.list.default-limit}")
+    private int listDefaultLimit;
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Add a new user to Keycloak", description = "Creates a new user with the specified username and password in Keycloak.")
     @ApiResponse(responseCode = "201", description = "User created successfully")
     @ApiResponse(responseCode = "400", description = "Invalid input")
     @ApiResponse(responseCode = "409", description = "User already exists")
+    @ApiResponse(responseCode = "422", description = "Idempotency key already used for a different user")
     @ApiResponse(responseCode = "500", description = "Internal server error")
+    @Observed(name = "keycloak.user.request", contextualName = "create-user-request")
     public void createUser(
         @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The user to add to Keycloak", required = true)
-        @RequestBody @Valid KeycloakUserDto user) throws KeycloakUserCreationException {
-        userService.createUser(user.getUsername(), user.getPassword());
-        log.info("User {} successfully added to Keycloak", user.getUsername());
+        @RequestBody @Valid KeycloakUserDto user,
+        @Parameter(description = "A key identifying the creation across retries, whose outcome is replayed for repeated requests")
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) throws KeycloakUserCreationException {
+        if (idempotencyKey == null) {
+            userService.createUser(user.getUsername(), user.getPassword());
+        } else {
+            idempotencyService.createUser(idempotencyKey, user.getUsername(), user.getPassword());
+        }
+        log.debug("User {} successfully added to Keycloak", user.getUsername());
+    }
+
+    @PostMapping("/async")
+    @Operation(summary = "Add a new user to Keycloak in the background", description = "Queues the creation of a new user with the specified username and password in Keycloak, and returns a job whose outcome can be polled.")
+    @ApiResponse(responseCode = "202", description = "User creation queued, poll the job at the Location header")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    @ApiResponse(responseCode = "429", description = "Too many user creations queued")
+    public ResponseEntity<KeycloakUserJob> createUserAsync(
+        @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The user to add to Keycloak", required = true)
+        @RequestBody @Valid KeycloakUserDto user) throws KeycloakUserJobQueueFullException {
+        KeycloakUserJob job = jobService.submit(user);
+        log.debug("User {} queued as job {}", user.getUsername(), job.getId());
+        return ResponseEntity
+            .accepted()
+            .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/users/jobs/{id}")
+                .buildAndExpand(job.getId())
+                .toUri())
+            .body(job);
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Operation(summary = "Get a background user creation", description = "Returns the state of a queued user creation, and its outcome once it is done.")
+    @ApiResponse(responseCode = "200", description = "Job found")
+    @ApiResponse(responseCode = "404", description = "No such job, or its outcome is no longer kept")
+    public ResponseEntity<KeycloakUserJob> getJob(@PathVariable String id) {
+        return ResponseEntity.of(jobService.find(id));
+    }
+
+    @GetMapping("/{username}")
+    @Operation(summary = "Get a user from Keycloak", description = "Returns the user with the specified username, answering from a short-lived cache when it was looked up recently.")
+    @ApiResponse(responseCode = "200", description = "User found")
+    @ApiResponse(responseCode = "404", description = "No user with that username")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public ResponseEntity<KeycloakUser> getUser(@PathVariable String username) throws KeycloakUserCreationException {
+        return ResponseEntity.of(userService.findUser(username));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "List users in Keycloak", description = "Streams a page of users in username order as {\"users\": [...], \"next\": \"...\"}. Pass next as the cursor of the following request to get the next page, it is absent on the last page.")
+    @ApiResponse(responseCode = "200", description = "Page of users")
+    @ApiResponse(responseCode = "400", description = "Invalid cursor or limit")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public void listUsers(
+        @Parameter(description = "The next value of the previous page, or absent for the first page")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "The maximum number of users to list, keycloak.list.default-limit if absent and capped by keycloak.list.max-limit")
+        @RequestParam(required = false) Integer limit,
+        HttpServletResponse response) throws IOException, KeycloakUserCreationException {
+        if (limit != null && limit < 1) {
+            throw new ResponseStatusException(BAD_REQUEST, "Limit must be positive");
+        }
+        int first = decodeCursor(cursor);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        // Not closed on failure, so a failure before the first page keeps the response uncommitted for the error status
+        JsonGenerator json = objectMapper.createGenerator(response.getOutputStream());
+        ObjectWriter userWriter = objectMapper.writerFor(KeycloakUser.class).without(FLUSH_AFTER_WRITE_VALUE);
+        json.writeStartObject();
+        json.writeArrayFieldStart("users");
+        OptionalInt next;
+        try {
+            next = userService.listUsers(first, limit == null ? listDefaultLimit : limit,
+                users -> writePage(json, userWriter, users));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.writeEndArray();
+        if (next.isPresent()) {
+            json.writeStringField("next", encodeCursor(next.getAsInt()));
+        }
+        json.writeEndObject();
+        json.close();
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Add multiple users to Keycloak", description = "Creates the specified users in Keycloak concurrently and reports the outcome for each user.")
+    @ApiResponse(responseCode = "200", description = "Batch processed, see the outcome of each user")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    public List<KeycloakUserCreationResult> createUsers(
+        @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The users to add to Keycloak", required = true)
+        @RequestBody List<KeycloakUserDto> users) {
+        List<KeycloakUserCreationResult> results = userService.createUsers(users);
+        log.info("Batch of {} users processed", results.size());
+        return results;
+    }
+
+    @PostMapping(path = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Import users into Keycloak", description = "Streams NDJSON or CSV (with a username,password header) user records into Keycloak and streams back the outcome of each user as NDJSON.")
+    @ApiResponse(responseCode = "200", description = "Import processed, see the outcome of each user")
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        importService.importUsers(request.getInputStream(), MediaType.parseMediaType(request.getContentType()), response.getOutputStream());
+    }
+
+    private static void writePage(JsonGenerator json, ObjectWriter userWriter, List<KeycloakUser> users) {
+        try {
+            for (KeycloakUser user : users) {
+                userWriter.writeValue(json, user);
+            }
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    @ResponseStatus(BAD_REQUEST)
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public Map<String, String> handleValidationExceptions(
-        MethodArgumentNotValidException ex) {
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getAllErrors().forEach((error) -> {
-            String fieldName = ((FieldError) error).getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
-        });
-        return errors;
+    private static String encodeCursor(int position) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((CURSOR_PREFIX + position).getBytes(StandardCharsets.UTF_8));
     }
 
-    @ResponseStatus(BAD_REQUEST)
-    @ExceptionHandler(HttpMessageNotReadableException.class)
-    public String handleHttpMessageNotReadableException(
-        HttpMessageNotReadableException ex) {
-        return "Required request body is missing";
+    private static int decodeCursor(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                int position = Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+                if (position >= 0) {
+                    return position;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below
+        }
+        throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor");
     }
 }
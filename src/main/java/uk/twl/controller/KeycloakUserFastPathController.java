@@ -0,0 +1,63 @@
+package uk.twl.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.observation.annotation.Observed;
+import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.service.KeycloakUserCodec;
+import uk.twl.service.KeycloakUserCodec.DecodedUser;
+import uk.twl.service.KeycloakUserService;
+
+import java.io.IOException;
+
+import static uk.twl.controller.KeycloakUserController.IDEMPOTENCY_KEY;
+
+/**
+ * Handles the JSON {@code POST /users} requests without an {@value KeycloakUserController#IDEMPOTENCY_KEY} header in
+ * place of {@link KeycloakUserController#createUser}, reading the body with {@link KeycloakUserCodec} instead of
+ * binding and validating a {@code KeycloakUserDto}. The responses are the same, including the validation errors.
+ *
+ * <p>Enabled with {@code keycloak.fast-path.enabled}. The mapping is more specific than the regular one, so it takes
+ * precedence for the requests it matches and the regular one still handles the others.
+ */
+@RestController
+@RequestMapping("/users")
+@Hidden
+@Profile("!reactive")
+@ConditionalOnProperty(name = "keycloak.fast-path.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class KeycloakUserFastPathController {
+
+    private final KeycloakUserService userService;
+
+    private final KeycloakUserCodec userCodec;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, headers = "!" + IDEMPOTENCY_KEY)
+    @Observed(name = "keycloak.user.request", contextualName = "create-user-request")
+    public ResponseEntity<?> createUser(HttpServletRequest request) throws IOException, KeycloakUserCreationException {
+        DecodedUser decoded;
+        try {
+            decoded = userCodec.read(request.getInputStream());
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body("Required request body is missing");
+        }
+        if (decoded.errors() != null) {
+            return ResponseEntity.badRequest().body(decoded.errors());
+        }
+        userService.createUser(decoded.user());
+        log.debug("User {} successfully added to Keycloak", decoded.user().getUsername());
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+}
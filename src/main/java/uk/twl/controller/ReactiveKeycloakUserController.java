@@ -0,0 +1,89 @@
+package uk.twl.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+import uk.twl.service.ReactiveKeycloakUserService;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * A non-blocking controller for managing users in Keycloak, used instead of {@link KeycloakUserController} by the
+ * {@code reactive} profile.
+ */
+@RestController
+@RequestMapping("/users")
+@Tag(name = "Keycloak User Management")
+@Profile("reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveKeycloakUserController {
+
+    private final ReactiveKeycloakUserService userService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Add a new user to Keycloak", description = "Creates a new user with the specified username and password in Keycloak.")
+    @ApiResponse(responseCode = "201", description = "User created successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    @ApiResponse(responseCode = "409", description = "User already exists")
+    @ApiResponse(responseCode = "500", description = "Internal server error")
+    public Mono<Void> createUser(
+        @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The user to add to Keycloak", required = true)
+        @RequestBody @Valid KeycloakUserDto user) {
+        return userService.createUser(user.getUsername(), user.getPassword())
+            .doOnSuccess(ignored -> log.debug("User {} successfully added to Keycloak", user.getUsername()));
+    }
+
+    @PostMapping(path = "/batch", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Add multiple users to Keycloak", description = "Creates the specified users in Keycloak concurrently and reports the outcome for each user, streamed when NDJSON is accepted.")
+    @ApiResponse(responseCode = "200", description = "Batch processed, see the outcome of each user")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    public Flux<KeycloakUserCreationResult> createUsers(
+        @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The users to add to Keycloak", required = true)
+        @RequestBody Flux<KeycloakUserDto> users) {
+        return userService.createUsers(users);
+    }
+
+    @ResponseStatus(BAD_REQUEST)
+    @ExceptionHandler(WebExchangeBindException.class)
+    public Map<String, String> handleValidationExceptions(
+        WebExchangeBindException ex) {
+        Map<String, String> errors = new HashMap<>();
+        ex.getBindingResult().getAllErrors().forEach((error) -> {
+            String fieldName = ((FieldError) error).getField();
+            String errorMessage = error.getDefaultMessage();
+            errors.put(fieldName, errorMessage);
+        });
+        return errors;
+    }
+
+    @ResponseStatus(BAD_REQUEST)
+    @ExceptionHandler(ServerWebInputException.class)
+    public String handleServerWebInputException(
+        ServerWebInputException ex) {
+        return "Required request body is missing";
+    }
+}
@@ -11,6 +11,6 @@ import static org.springframework.http.HttpStatus.CONFLICT;
 public class DuplicateKeycloakUserException extends KeycloakUserCreationException {
 
     public DuplicateKeycloakUserException(String username) {
-        super("Duplicate user: " + username);
+        super("Duplicate user: " + username, CONFLICT.value());
     }
 }
@@ -0,0 +1,16 @@
+package uk.twl.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
+
+/**
+ * An exception that is thrown when an idempotency key is sent again with a different user than it was first sent with.
+ */
+@ResponseStatus(UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyReuseException extends KeycloakUserCreationException {
+
+    public IdempotencyKeyReuseException(String idempotencyKey) {
+        super("Idempotency key " + idempotencyKey + " was already used for a different user", UNPROCESSABLE_ENTITY.value());
+    }
+}
@@ -0,0 +1,41 @@
+package uk.twl.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * An exception that is thrown when a call to the Keycloak server is not attempted because Keycloak is failing or
+ * already has as many calls in flight as allowed.
+ */
+@ResponseStatus(SERVICE_UNAVAILABLE)
+public class KeycloakUnavailableException extends KeycloakCommunicationException {
+
+    /**
+     * Whether an earlier attempt of the same operation reached Keycloak without telling whether it succeeded.
+     */
+    private final boolean mayHaveSucceeded;
+
+    public KeycloakUnavailableException(String message) {
+        super(message);
+        this.mayHaveSucceeded = false;
+    }
+
+    public KeycloakUnavailableException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    public KeycloakUnavailableException(String message, Throwable cause, boolean mayHaveSucceeded) {
+        super(message, cause);
+        this.mayHaveSucceeded = mayHaveSucceeded;
+    }
+
+    public boolean mayHaveSucceeded() {
+        return mayHaveSucceeded;
+    }
+
+    @Override
+    public Integer getStatusCode() {
+        return SERVICE_UNAVAILABLE.value();
+    }
+}
@@ -10,11 +10,27 @@ import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 @ResponseStatus(INTERNAL_SERVER_ERROR)
 public class KeycloakUserCreationException extends Exception {
 
+    /**
+     * The status code returned by Keycloak, or {@code null} if Keycloak did not respond.
+     */
+    private final Integer statusCode;
+
     public KeycloakUserCreationException(String message) {
         super(message);
+        this.statusCode = null;
+    }
+
+    public KeycloakUserCreationException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
     }
 
     public KeycloakUserCreationException(String message, Throwable cause) {
         super(message, cause);
+        this.statusCode = null;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
     }
 }
@@ -0,0 +1,16 @@
+package uk.twl.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * An exception that is thrown when a background user creation cannot be accepted because too many are already queued.
+ */
+@ResponseStatus(TOO_MANY_REQUESTS)
+public class KeycloakUserJobQueueFullException extends KeycloakUserCreationException {
+
+    public KeycloakUserJobQueueFullException() {
+        super("Too many user creations queued, retry later", TOO_MANY_REQUESTS.value());
+    }
+}
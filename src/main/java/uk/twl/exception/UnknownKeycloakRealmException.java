@@ -0,0 +1,17 @@
+package uk.twl.exception;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+/**
+ * An exception that is thrown when a realm is neither the configured {@code keycloak.realm} nor one of the realms
+ * listed under {@code keycloak.tenants.realms}.
+ */
+@ResponseStatus(NOT_FOUND)
+public class UnknownKeycloakRealmException extends KeycloakUserCreationException {
+
+    public UnknownKeycloakRealmException(String realm) {
+        super("Unknown realm: " + realm, NOT_FOUND.value());
+    }
+}
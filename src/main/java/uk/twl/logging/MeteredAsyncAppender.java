@@ -0,0 +1,51 @@
+package uk.twl.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link AsyncAppender} that drops the events finding its queue full instead of blocking the logging thread, and
+ * counts them.
+ *
+ * <p>The count is published as the {@code logback.events.dropped} metric by {@code LoggingConfig}. Events are only
+ * dropped when the queue is full, whatever their level, as the discarding threshold of the appender is set to 0.
+ *
+ * <p>The queue is only checked and appended to by one thread at a time, so an event that passes the check always fits
+ * in the queue, which only the worker thread takes from, and every dropped event is counted. Events are prepared for
+ * the worker thread before that, so concurrent appends only wait on each other for the queue operation itself.
+ */
+public class MeteredAsyncAppender extends AsyncAppender {
+
+    private final LongAdder droppedEvents = new LongAdder();
+
+    private final Object queueLock = new Object();
+
+    public MeteredAsyncAppender() {
+        setNeverBlock(true);
+        setDiscardingThreshold(0);
+    }
+
+    /**
+     * Returns the number of events dropped so far because the queue was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // Repeated by super.append at no cost, as the event keeps what it has prepared
+        preprocess(event);
+        synchronized (queueLock) {
+            if (getRemainingCapacity() == 0) {
+                droppedEvents.increment();
+                return;
+            }
+            super.append(event);
+        }
+    }
+}
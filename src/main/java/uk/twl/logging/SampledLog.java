@@ -0,0 +1,58 @@
+package uk.twl.logging;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits a repeated log statement to a number of occurrences per interval, for expected failures such as duplicate
+ * users that would otherwise be logged for every request.
+ *
+ * <p>Usage:
+ * <pre>{@code
+ * long suppressed = duplicateLog.tryAcquire();
+ * if (suppressed >= 0) {
+ *     log.warn("Duplicate user {} ({} similar suppressed)", username, suppressed);
+ * }
+ * }</pre>
+ */
+public class SampledLog {
+
+    private final long intervalNanos;
+
+    private final long permitsPerInterval;
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong permitted = new AtomicLong();
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * Creates a sampled log statement.
+     *
+     * @param permitsPerInterval the number of occurrences logged per interval
+     * @param interval the interval
+     */
+    public SampledLog(long permitsPerInterval, Duration interval) {
+        this.permitsPerInterval = permitsPerInterval;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * Checks whether an occurrence should be logged.
+     *
+     * @return the number of occurrences suppressed since the last one logged, or -1 if this one should be suppressed
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= intervalNanos && windowStart.compareAndSet(start, now)) {
+            permitted.set(0);
+        }
+        if (permitted.incrementAndGet() > permitsPerInterval) {
+            suppressed.incrementAndGet();
+            return -1;
+        }
+        return suppressed.getAndSet(0);
+    }
+}
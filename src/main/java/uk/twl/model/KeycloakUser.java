@@ -0,0 +1,43 @@
+package uk.twl.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+import org.keycloak.representations.idm.UserRepresentation;
+
+/**
+ * A DTO class representing a user that exists in Keycloak.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class KeycloakUser {
+
+    @Schema(description = "The ID of the user in Keycloak", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String id;
+
+    @Schema(description = "The username of the user", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String username;
+
+    @Schema(description = "Whether the user can log in")
+    private Boolean enabled;
+
+    @Schema(description = "When the user was created, in milliseconds since the epoch")
+    private Long createdTimestamp;
+
+    /**
+     * Creates a user from its Keycloak representation.
+     *
+     * @param representation the Keycloak representation of the user
+     * @return the user
+     */
+    public static KeycloakUser of(UserRepresentation representation) {
+        return KeycloakUser.builder()
+            .id(representation.getId())
+            .username(representation.getUsername())
+            .enabled(representation.isEnabled())
+            .createdTimestamp(representation.getCreatedTimestamp())
+            .build();
+    }
+}
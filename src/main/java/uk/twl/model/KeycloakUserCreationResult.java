@@ -0,0 +1,66 @@
+package uk.twl.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.CREATED;
+
+/**
+ * A DTO class representing the outcome of adding a single user to Keycloak as part of a batch.
+ */
+@Data
+@Builder
+@Jacksonized
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class KeycloakUserCreationResult {
+
+    /**
+     * The possible outcomes of adding a user to Keycloak.
+     */
+    public enum Outcome {
+        CREATED,
+        DUPLICATE,
+        FAILED
+    }
+
+    @Schema(description = "The username of the user")
+    private String username;
+
+    @Schema(description = "The outcome of adding the user", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Outcome outcome;
+
+    @Schema(description = "The status code of the creation, if one is known")
+    private Integer statusCode;
+
+    @Schema(description = "The reason the user could not be added")
+    private String message;
+
+    public static KeycloakUserCreationResult created(String username) {
+        return KeycloakUserCreationResult.builder()
+            .username(username)
+            .outcome(Outcome.CREATED)
+            .statusCode(CREATED.value())
+            .build();
+    }
+
+    public static KeycloakUserCreationResult duplicate(String username) {
+        return KeycloakUserCreationResult.builder()
+            .username(username)
+            .outcome(Outcome.DUPLICATE)
+            .statusCode(CONFLICT.value())
+            .build();
+    }
+
+    public static KeycloakUserCreationResult failed(String username, Integer statusCode, String message) {
+        return KeycloakUserCreationResult.builder()
+            .username(username)
+            .outcome(Outcome.FAILED)
+            .statusCode(statusCode)
+            .message(message)
+            .build();
+    }
+}
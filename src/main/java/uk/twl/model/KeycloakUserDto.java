@@ -5,12 +5,14 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 /**
  * A DTO class representing a user to be added to Keycloak.
  */
 @Data
 @Builder
+@Jacksonized
 @NotNull
 public class KeycloakUserDto {
 
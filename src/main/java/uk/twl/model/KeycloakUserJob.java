@@ -0,0 +1,36 @@
+package uk.twl.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A DTO class representing a user creation that was accepted to be carried out in the background.
+ */
+@Data
+@Builder(toBuilder = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class KeycloakUserJob {
+
+    /**
+     * The possible states of a background user creation.
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        DONE
+    }
+
+    @Schema(description = "The ID to poll the job with", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String id;
+
+    @Schema(description = "The username of the user")
+    private String username;
+
+    @Schema(description = "The state of the job", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Status status;
+
+    @Schema(description = "The outcome of adding the user, once the job is done")
+    private KeycloakUserCreationResult result;
+}
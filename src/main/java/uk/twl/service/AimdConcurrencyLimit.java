@@ -0,0 +1,81 @@
+package uk.twl.service;
+
+/**
+ * A concurrency limit that adapts to how well Keycloak copes with the load, using additive increase and multiplicative
+ * decrease like TCP congestion control.
+ *
+ * <p>A call that fails with a server error or takes longer than the latency threshold shrinks the limit by the
+ * backoff ratio, and every other call grows it by {@code 1 / limit}, so about one more concurrent call is allowed per
+ * round of calls that went well. The limit only grows while at least half of it is in use, so it does not drift up
+ * while the load is light. Calls that started before the last decrease do not shrink the limit again, so a burst of
+ * concurrent calls hit by the same latency spike backs off once rather than once per call.
+ */
+final class AimdConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private final long latencyThresholdNanos;
+
+    private double limit;
+
+    private int inFlight;
+
+    private boolean decreased;
+
+    private long lastDecreaseNanos;
+
+    AimdConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long latencyThresholdNanos) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot for a call if fewer calls than the current limit are in flight.
+     *
+     * @return {@code true} if the call may be made, in which case {@link #release(long, long, boolean)} must be called once
+     *         it completes
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases the slot of a completed call and adjusts the limit to how it went.
+     *
+     * @param startNanos when the call started, as given by {@link System#nanoTime()}
+     * @param endNanos when the call completed, as given by {@link System#nanoTime()}
+     * @param overloaded whether the call failed in a way that suggests Keycloak is overloaded
+     */
+    synchronized void release(long startNanos, long endNanos, boolean overloaded) {
+        if (overloaded || endNanos - startNanos > latencyThresholdNanos) {
+            if (!decreased || startNanos - lastDecreaseNanos >= 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                decreased = true;
+                lastDecreaseNanos = endNanos;
+            }
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        inFlight--;
+    }
+
+    /**
+     * Returns the number of calls currently allowed in flight.
+     *
+     * @return the current limit
+     */
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+}
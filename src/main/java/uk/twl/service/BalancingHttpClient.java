@@ -0,0 +1,61 @@
+package uk.twl.service;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+
+/**
+ * An HTTP client that sends each request to the Keycloak node chosen by a {@link KeycloakNodeBalancer} instead of the
+ * host in the request URI, and reports back how the request went.
+ *
+ * <p>Requests keep the {@code Host} header of their URI, as they would through a load balancer, so every node must
+ * accept the hostname of {@code keycloak.auth-server-url}.
+ */
+public class BalancingHttpClient extends CloseableHttpClient {
+
+    private final CloseableHttpClient delegate;
+
+    private final KeycloakNodeBalancer balancer;
+
+    public BalancingHttpClient(CloseableHttpClient delegate, KeycloakNodeBalancer balancer) {
+        this.delegate = delegate;
+        this.balancer = balancer;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+        throws IOException {
+        KeycloakNodeBalancer.Node node = balancer.acquire();
+        boolean failed = true;
+        try {
+            CloseableHttpResponse response = delegate.execute(node.getHost(), request, context);
+            failed = response.getStatusLine().getStatusCode() >= 500;
+            return response;
+        } finally {
+            balancer.release(node, failed);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public HttpParams getParams() {
+        return delegate.getParams();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public ClientConnectionManager getConnectionManager() {
+        return delegate.getConnectionManager();
+    }
+}
@@ -0,0 +1,351 @@
+package uk.twl.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import uk.twl.config.KeycloakLimitProperties;
+import uk.twl.exception.KeycloakUnavailableException;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs calls to the Keycloak admin API and records how they went.
+ *
+ * <p>Every call is timed as {@code keycloak.admin.requests} and tracked while in flight as
+ * {@code keycloak.admin.requests.active}, both tagged with the realm and the operation. The timer is also tagged with
+ * the outcome: the status code Keycloak answered with, {@code ProcessingException} if Keycloak could not be reached,
+ * or the exception type of any other failure.
+ *
+ * <p>Calls to each realm are paced by a {@link TokenBucket} and capped by an {@link AimdConcurrencyLimit} that adapts
+ * to the latency and server errors Keycloak answers with, both configured per realm under {@code keycloak.limits}. The
+ * current concurrency limit is published as {@code keycloak.admin.concurrency.limit}. Calls also go through a
+ * bulkhead that limits how many of them can wait on Keycloak at once, and a circuit breaker that stops calling Keycloak
+ * for a while once too many calls fail or are slow. Calls that any of these turn away are not made at all and are
+ * counted as {@code keycloak.admin.requests.rejected}.
+ *
+ * <p>Blocking calls through the admin client go through {@link #execute(String, String, Supplier)}, and non-blocking
+ * calls through a web client go through {@link #executeAsync(String, String, Supplier)}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KeycloakAdminGateway {
+
+    private final MeterRegistry meterRegistry;
+
+    private final CircuitBreaker keycloakCircuitBreaker;
+
+    private final Bulkhead keycloakBulkhead;
+
+    private final KeycloakLimitProperties limitProperties;
+
+    private final ConcurrentMap<String, RealmLimiter> realmLimiters = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the specified call to the Keycloak admin API.
+     *
+     * @param realm the realm the call is made against
+     * @param operation the name of the operation, such as {@code create-user}
+     * @param call the call to make
+     * @param <T> the type of the call's result
+     * @return the result of the call
+     * @throws KeycloakUnavailableException if the call was not made because of the realm's limits, the circuit breaker
+     *                                      is open or the bulkhead is full
+     */
+    public <T> T execute(String realm, String operation, Supplier<T> call) throws KeycloakUnavailableException {
+        Tags tags = Tags.of("realm", String.valueOf(realm), "operation", operation);
+        RealmLimiter limiter = limiterFor(realm);
+        if (limiter != null) {
+            awaitRate(limiter, tags);
+        }
+        AdmittedCall admitted = admit(realm, limiter, tags);
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            admitted.failed(e);
+            throw e;
+        }
+        admitted.succeeded(result);
+        return result;
+    }
+
+    /**
+     * Runs the specified non-blocking call to the Keycloak admin API, with the same limits and metrics as
+     * {@link #execute(String, String, Supplier)}. The realm's rate limit is waited for without blocking, and a call
+     * that is cancelled gives its permits back.
+     *
+     * @param realm the realm the call is made against
+     * @param operation the name of the operation, such as {@code create-user}
+     * @param call the call to make, subscribed to once the call is let through
+     * @param <T> the type of the call's result
+     * @return a mono of the result of the call, which fails with a {@link KeycloakUnavailableException} if the call was
+     *     not made because of the realm's limits, the circuit breaker is open or the bulkhead is full
+     */
+    public <T> Mono<T> executeAsync(String realm, String operation, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            Tags tags = Tags.of("realm", String.valueOf(realm), "operation", operation);
+            RealmLimiter limiter = limiterFor(realm);
+            long waitNanos;
+            try {
+                waitNanos = limiter != null ? reserveRate(limiter, tags) : 0;
+            } catch (KeycloakUnavailableException e) {
+                return Mono.error(e);
+            }
+            Mono<T> admittedCall = Mono.defer(() -> {
+                AdmittedCall admitted;
+                try {
+                    admitted = admit(realm, limiter, tags);
+                } catch (KeycloakUnavailableException e) {
+                    return Mono.error(e);
+                }
+                Mono<T> result;
+                try {
+                    result = call.get();
+                } catch (RuntimeException e) {
+                    admitted.failed(e);
+                    return Mono.error(e);
+                }
+                return result
+                    .doOnSuccess(admitted::succeeded)
+                    .doOnError(admitted::failed)
+                    .doOnCancel(admitted::cancelled);
+            });
+            return waitNanos > 0 ? Mono.delay(Duration.ofNanos(waitNanos)).then(admittedCall) : admittedCall;
+        });
+    }
+
+    /**
+     * Drops the limits of the specified realm and its {@code keycloak.admin.concurrency.limit} gauge, once the realm is
+     * no longer used. The limits start afresh if the realm is used again.
+     *
+     * @param realm the realm
+     */
+    public void removeRealm(String realm) {
+        realmLimiters.remove(realm);
+        meterRegistry.find("keycloak.admin.concurrency.limit").tag("realm", realm).meters()
+            .forEach(meterRegistry::remove);
+    }
+
+    /**
+     * Returns whether the specified exception thrown by a Keycloak call means Keycloak is failing: it could not be
+     * reached or answered with a server error.
+     *
+     * @param throwable the exception thrown by the call
+     * @return {@code true} if the exception is a failure of Keycloak
+     */
+    public static boolean isFailure(Throwable throwable) {
+        return throwable instanceof ProcessingException
+            || throwable instanceof WebClientRequestException
+            || throwable instanceof WebApplicationException exception && isServerError(exception.getResponse().getStatus());
+    }
+
+    /**
+     * Returns whether the specified result of a Keycloak call means Keycloak is failing: it is a server error response.
+     *
+     * @param result the result of the call
+     * @return {@code true} if the result is a server error response
+     */
+    public static boolean isFailedResult(Object result) {
+        Integer statusCode = statusCode(result);
+        return statusCode != null && isServerError(statusCode);
+    }
+
+    private static Integer statusCode(Object result) {
+        if (result instanceof Response response) {
+            return response.getStatus();
+        }
+        if (result instanceof ResponseEntity<?> response) {
+            return response.getStatusCode().value();
+        }
+        return null;
+    }
+
+    private static boolean isServerError(int statusCode) {
+        return statusCode >= 500;
+    }
+
+    private RealmLimiter limiterFor(String realm) {
+        return limitProperties.isEnabled()
+            ? realmLimiters.computeIfAbsent(String.valueOf(realm), this::newRealmLimiter)
+            : null;
+    }
+
+    private AdmittedCall admit(String realm, RealmLimiter limiter, Tags tags) throws KeycloakUnavailableException {
+        if (!keycloakBulkhead.tryAcquirePermission()) {
+            reject(tags, "bulkhead-full");
+            throw new KeycloakUnavailableException("Too many concurrent calls to Keycloak");
+        }
+        if (!keycloakCircuitBreaker.tryAcquirePermission()) {
+            keycloakBulkhead.onComplete();
+            reject(tags, "circuit-open");
+            throw new KeycloakUnavailableException("Keycloak is unavailable");
+        }
+        if (limiter != null && !limiter.concurrency().tryAcquire()) {
+            keycloakCircuitBreaker.releasePermission();
+            keycloakBulkhead.onComplete();
+            reject(tags, "concurrency-limit");
+            throw new KeycloakUnavailableException("Too many concurrent calls to Keycloak realm " + realm);
+        }
+        return new AdmittedCall(tags, limiter);
+    }
+
+    private RealmLimiter newRealmLimiter(String realm) {
+        KeycloakLimitProperties.Limit limit = limitProperties.forRealm(realm);
+        TokenBucket rate = limit.getRate() > 0 ? new TokenBucket(limit.getRate(), limit.getBurst(), System::nanoTime) : null;
+        AimdConcurrencyLimit concurrency = new AimdConcurrencyLimit(limit.getInitialConcurrency(),
+            limit.getMinConcurrency(), limit.getMaxConcurrency(), limit.getBackoffRatio(),
+            limit.getLatencyThreshold().toNanos());
+        Gauge.builder("keycloak.admin.concurrency.limit", concurrency, AimdConcurrencyLimit::getLimit)
+            .description("Concurrent Keycloak admin API calls currently allowed")
+            .tag("realm", realm)
+            .register(meterRegistry);
+        return new RealmLimiter(rate, limit.getMaxWait().toNanos(), concurrency);
+    }
+
+    private void awaitRate(RealmLimiter limiter, Tags tags) throws KeycloakUnavailableException {
+        long waitNanos = reserveRate(limiter, tags);
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KeycloakUnavailableException("Interrupted waiting for the Keycloak call rate limit", e);
+        }
+    }
+
+    private long reserveRate(RealmLimiter limiter, Tags tags) throws KeycloakUnavailableException {
+        if (limiter.rate() == null) {
+            return 0;
+        }
+        long waitNanos = limiter.rate().reserve(limiter.maxWaitNanos());
+        if (waitNanos < 0) {
+            reject(tags, "rate-limit");
+            throw new KeycloakUnavailableException("Keycloak call rate limit exceeded");
+        }
+        return waitNanos;
+    }
+
+    private static String outcome(Object result) {
+        Integer statusCode = statusCode(result);
+        return statusCode != null ? String.valueOf(statusCode) : "success";
+    }
+
+    private static String outcome(Throwable throwable) {
+        if (throwable instanceof ProcessingException) {
+            return "ProcessingException";
+        }
+        if (throwable instanceof WebApplicationException exception) {
+            return String.valueOf(exception.getResponse().getStatus());
+        }
+        return throwable.getClass().getSimpleName();
+    }
+
+    private void reject(Tags tags, String reason) {
+        log.warn("Keycloak call rejected: {}", reason);
+        meterRegistry.counter("keycloak.admin.requests.rejected", tags.and("reason", reason)).increment();
+    }
+
+    /**
+     * The limits of the calls made to a realm.
+     *
+     * @param rate the rate limit, or {@code null} if the realm has none
+     * @param maxWaitNanos how long a call waits for the rate limit
+     * @param concurrency the concurrency limit
+     */
+    private record RealmLimiter(TokenBucket rate, long maxWaitNanos, AimdConcurrencyLimit concurrency) {
+    }
+
+    /**
+     * A call let through the gateway, which records its outcome and gives its permits back once, when it ends.
+     */
+    private final class AdmittedCall {
+
+        private final Tags tags;
+
+        private final RealmLimiter limiter;
+
+        private final LongTaskTimer.Sample active;
+
+        private final Timer.Sample sample;
+
+        private final long start = keycloakCircuitBreaker.getCurrentTimestamp();
+
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private AdmittedCall(Tags tags, RealmLimiter limiter) {
+            this.tags = tags;
+            this.limiter = limiter;
+            this.active = LongTaskTimer.builder("keycloak.admin.requests.active")
+                .description("Keycloak admin API calls in flight")
+                .tags(tags)
+                .register(meterRegistry)
+                .start();
+            this.sample = Timer.start(meterRegistry);
+        }
+
+        void succeeded(Object result) {
+            if (ended.compareAndSet(false, true)) {
+                record(outcome(result));
+                keycloakCircuitBreaker.onResult(keycloakCircuitBreaker.getCurrentTimestamp() - start,
+                    keycloakCircuitBreaker.getTimestampUnit(), result);
+                release(isFailedResult(result));
+            }
+        }
+
+        void failed(Throwable throwable) {
+            if (ended.compareAndSet(false, true)) {
+                record(outcome(throwable));
+                keycloakCircuitBreaker.onError(keycloakCircuitBreaker.getCurrentTimestamp() - start,
+                    keycloakCircuitBreaker.getTimestampUnit(), throwable);
+                release(isFailure(throwable));
+            }
+        }
+
+        void cancelled() {
+            if (ended.compareAndSet(false, true)) {
+                record("cancelled");
+                keycloakCircuitBreaker.releasePermission();
+                release(false);
+            }
+        }
+
+        private void record(String outcome) {
+            active.stop();
+            sample.stop(Timer.builder("keycloak.admin.requests")
+                .description("Keycloak admin API calls")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        }
+
+        private void release(boolean failed) {
+            try {
+                if (limiter != null) {
+                    limiter.concurrency().release(startNanos, System.nanoTime(), failed);
+                }
+            } finally {
+                keycloakBulkhead.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package uk.twl.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Initializes the Keycloak admin client and fetches its first access token in the background once the application
+ * is ready, for when the beans are initialized lazily.
+ *
+ * <p>With {@code spring.main.lazy-initialization} the application starts accepting requests without building the
+ * admin client, and this pre-warming usually completes before the first request arrives. A request that does arrive
+ * first initializes the beans it needs itself, so pre-warming never holds up a request. Pre-warming also starts the
+ * {@link KeycloakTokenRefresher}, which nothing else depends on.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class KeycloakClientPrewarmer implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final ObjectProvider<KeycloakUserService> userService;
+
+    private final ObjectProvider<Keycloak> keycloak;
+
+    private final ObjectProvider<KeycloakTokenRefresher> tokenRefresher;
+
+    private final AsyncTaskExecutor applicationTaskExecutor;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        applicationTaskExecutor.execute(this::prewarm);
+    }
+
+    private void prewarm() {
+        long start = System.nanoTime();
+        try {
+            userService.getObject();
+            if (tokenRefresher.getIfAvailable() == null) {
+                keycloak.getObject().tokenManager().getAccessToken();
+            }
+            log.info("Keycloak admin client pre-warmed in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.warn("Could not pre-warm the Keycloak admin client, it will be initialized by the first request", e);
+        }
+    }
+}
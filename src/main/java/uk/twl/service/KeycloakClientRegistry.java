@@ -0,0 +1,226 @@
+package uk.twl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.keycloak.admin.client.Keycloak;
+import uk.twl.config.KeycloakClients;
+import uk.twl.config.KeycloakTenantProperties;
+import uk.twl.config.KeycloakTokenProperties;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A registry of the Keycloak admin clients of the realms listed under {@code keycloak.tenants.realms}, so one instance
+ * can manage the users of many tenant realms, each with its own credentials.
+ *
+ * <p>A realm's client and its connection pool are created when the realm is first used, and closed once it has not
+ * been used for {@code keycloak.tenants.idle-timeout} or more than {@code keycloak.tenants.maximum-clients} are open,
+ * so rarely used realms do not hold idle connections. Realm clients are spread over the same Keycloak nodes as the
+ * default admin client. The pool of each realm is published as the
+ * {@code httpcomponents.httpclient.pool.*} metrics of {@code keycloak-<realm>}, and the open clients as the
+ * {@code cache.*} metrics of {@code keycloak.clients}. Closing a realm's client also drops the realm's limits in the
+ * {@link KeycloakAdminGateway}.
+ *
+ * <p>Realm clients are used through a {@link Lease}, and a client that is evicted while leased is only closed once its
+ * last lease is closed, so calls in flight are not cut off by the eviction.
+ */
+@Slf4j
+public class KeycloakClientRegistry implements AutoCloseable {
+
+    private final String serverUrl;
+
+    private final KeycloakTenantProperties tenantProperties;
+
+    private final KeycloakTokenProperties tokenProperties;
+
+    private final KeycloakNodeBalancer nodeBalancer;
+
+    private final MeterRegistry meterRegistry;
+
+    private final KeycloakAdminGateway adminGateway;
+
+    private final HttpRequestExecutor requestExecutor;
+
+    private final Cache<String, RealmClient> clients;
+
+    public KeycloakClientRegistry(String serverUrl, KeycloakTenantProperties tenantProperties,
+                                  KeycloakTokenProperties tokenProperties, KeycloakNodeBalancer nodeBalancer,
+                                  KeycloakAdminGateway adminGateway, MeterRegistry meterRegistry,
+                                  ObservationRegistry observationRegistry) {
+        this.serverUrl = serverUrl;
+        this.tenantProperties = tenantProperties;
+        this.tokenProperties = tokenProperties;
+        this.nodeBalancer = nodeBalancer;
+        this.meterRegistry = meterRegistry;
+        this.adminGateway = adminGateway;
+        this.requestExecutor = KeycloakClients.newRequestExecutor(meterRegistry, observationRegistry);
+        this.clients = Caffeine.newBuilder()
+            .maximumSize(tenantProperties.getMaximumClients())
+            .expireAfterAccess(tenantProperties.getIdleTimeout())
+            .executor(Runnable::run)
+            .<String, RealmClient>removalListener((realm, client, cause) -> closeClient(realm, client, cause))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, clients, "keycloak.clients");
+    }
+
+    /**
+     * Leases the admin client of the specified realm, creating it if it is not open yet. The client stays open until
+     * the lease is closed, even if it is evicted meanwhile.
+     *
+     * @param realm the realm
+     * @return a lease of the realm's own admin client, or empty if the realm is not listed
+     */
+    public Optional<Lease> lease(String realm) {
+        KeycloakTenantProperties.Credentials credentials = tenantProperties.getRealms().get(realm);
+        if (credentials == null) {
+            return Optional.empty();
+        }
+        while (true) {
+            RealmClient client = clients.get(realm, ignored -> newClient(realm, credentials));
+            if (client.retain()) {
+                return Optional.of(new Lease(client.keycloak(), client));
+            }
+            // Evicted and released by its last lease since it was looked up, so a new client is opened
+        }
+    }
+
+    @Override
+    public void close() {
+        clients.invalidateAll();
+        clients.cleanUp();
+    }
+
+    private RealmClient newClient(String realm, KeycloakTenantProperties.Credentials credentials) {
+        log.info("Opening Keycloak admin client of realm {}", realm);
+        PoolingHttpClientConnectionManager connectionManager =
+            KeycloakClients.newConnectionManager(tenantProperties.getHttp());
+        CloseableHttpClient pooledClient = KeycloakClients.newHttpClient(connectionManager, tenantProperties.getHttp(),
+            requestExecutor);
+        CloseableHttpClient httpClient =
+            nodeBalancer.isEnabled() ? new BalancingHttpClient(pooledClient, nodeBalancer) : pooledClient;
+        Keycloak keycloak = KeycloakClients.newKeycloak(serverUrl,
+            credentials.getAuthRealm() == null ? realm : credentials.getAuthRealm(),
+            credentials.getClientId(), credentials.getClientSecret(), credentials.getGrantType(), httpClient);
+        keycloak.tokenManager().setMinTokenValidity(tokenProperties.getMinValidity().toSeconds());
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, poolName(realm)).bindTo(meterRegistry);
+        return new RealmClient(realm, keycloak, httpClient);
+    }
+
+    private void closeClient(String realm, RealmClient client, RemovalCause cause) {
+        if (client == null) {
+            return;
+        }
+        log.info("Closing Keycloak admin client of realm {} ({})", realm, cause);
+        meterRegistry.getMeters().stream()
+            .filter(meter -> poolName(realm).equals(meter.getId().getTag("httpclient")))
+            .forEach(meterRegistry::remove);
+        adminGateway.removeRealm(realm);
+        client.release();
+    }
+
+    private static String poolName(String realm) {
+        return "keycloak-" + realm;
+    }
+
+    /**
+     * A use of an admin client, which keeps a realm's client open until it is closed.
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private final Keycloak keycloak;
+
+        private final RealmClient client;
+
+        private Lease(Keycloak keycloak, RealmClient client) {
+            this.keycloak = keycloak;
+            this.client = client;
+        }
+
+        /**
+         * Returns a lease of an admin client the registry does not manage, such as the default admin client, whose
+         * closing does nothing.
+         *
+         * @param keycloak the admin client
+         * @return the lease
+         */
+        public static Lease unmanaged(Keycloak keycloak) {
+            return new Lease(keycloak, null);
+        }
+
+        /**
+         * Returns the leased admin client, to be used until the lease is closed.
+         *
+         * @return the admin client
+         */
+        public Keycloak keycloak() {
+            return keycloak;
+        }
+
+        @Override
+        public void close() {
+            if (client != null) {
+                client.release();
+            }
+        }
+    }
+
+    /**
+     * The admin client of a realm and the HTTP client it sends its requests with, closed once the registry and every
+     * lease have released it.
+     */
+    private static final class RealmClient {
+
+        private final String realm;
+
+        private final Keycloak keycloak;
+
+        private final CloseableHttpClient httpClient;
+
+        // One reference is held by the registry until the client is evicted, and one by each open lease
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private RealmClient(String realm, Keycloak keycloak, CloseableHttpClient httpClient) {
+            this.realm = realm;
+            this.keycloak = keycloak;
+            this.httpClient = httpClient;
+        }
+
+        Keycloak keycloak() {
+            return keycloak;
+        }
+
+        boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                keycloak.close();
+                try {
+                    httpClient.close();
+                } catch (IOException e) {
+                    log.warn("Error closing the HTTP client of realm {}", realm, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package uk.twl.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import uk.twl.config.KeycloakNodeProperties;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Chooses the Keycloak node each admin call is sent to, from the nodes listed under {@code keycloak.nodes.urls}.
+ *
+ * <p>Each call goes to the less busy of two nodes picked at random, the one with fewer calls outstanding, so a slow
+ * node whose calls pile up gets fewer new ones. A node that fails {@code keycloak.nodes.failure-threshold} calls in a
+ * row, with an I/O error or a 5xx response, is ejected for {@code keycloak.nodes.ejection-duration}. If every node is
+ * ejected, calls are spread over all of them rather than failing outright. The outstanding calls and ejections of each
+ * node are published as the {@code keycloak.node.*} metrics.
+ */
+@Slf4j
+public class KeycloakNodeBalancer {
+
+    private final List<Node> nodes;
+
+    private final int failureThreshold;
+
+    private final long ejectionNanos;
+
+    private final LongSupplier nanoClock;
+
+    public KeycloakNodeBalancer(KeycloakNodeProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    KeycloakNodeBalancer(KeycloakNodeProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.failureThreshold = properties.getFailureThreshold();
+        this.ejectionNanos = properties.getEjectionDuration().toNanos();
+        this.nanoClock = nanoClock;
+        this.nodes = properties.getUrls().stream()
+            .map(url -> new Node(HttpHost.create(url), meterRegistry))
+            .toList();
+    }
+
+    /**
+     * Returns whether calls are spread over several nodes.
+     *
+     * @return {@code true} if any node is configured
+     */
+    public boolean isEnabled() {
+        return !nodes.isEmpty();
+    }
+
+    /**
+     * Chooses the node to send a call to and counts the call as outstanding on it.
+     *
+     * @return the chosen node, which must be passed to {@link #release(Node, boolean)} once the call completes
+     */
+    public Node acquire() {
+        long now = nanoClock.getAsLong();
+        List<Node> candidates = nodes.stream().filter(node -> !node.isEjected(now)).toList();
+        if (candidates.isEmpty()) {
+            candidates = nodes;
+        }
+        Node chosen = candidates.get(0);
+        if (candidates.size() > 1) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(candidates.size());
+            int second = (first + 1 + random.nextInt(candidates.size() - 1)) % candidates.size();
+            Node a = candidates.get(first);
+            Node b = candidates.get(second);
+            chosen = a.outstanding.get() <= b.outstanding.get() ? a : b;
+        }
+        chosen.outstanding.incrementAndGet();
+        return chosen;
+    }
+
+    /**
+     * Records that a call sent to the specified node completed.
+     *
+     * @param node the node the call was sent to
+     * @param failed whether the call failed with an I/O error or a 5xx response
+     */
+    public void release(Node node, boolean failed) {
+        node.outstanding.decrementAndGet();
+        if (!failed) {
+            node.consecutiveFailures.set(0);
+        } else if (node.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            node.consecutiveFailures.set(0);
+            node.ejectedUntilNanos = nanoClock.getAsLong() + ejectionNanos;
+            node.ejected = true;
+            node.ejections.increment();
+            log.warn("Keycloak node {} ejected after {} consecutive failures", node.host, failureThreshold);
+        }
+    }
+
+    /**
+     * A Keycloak node and the calls outstanding on it.
+     */
+    public static final class Node {
+
+        private final HttpHost host;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        private final Counter ejections;
+
+        private volatile boolean ejected;
+
+        private volatile long ejectedUntilNanos;
+
+        private Node(HttpHost host, MeterRegistry meterRegistry) {
+            this.host = host;
+            Gauge.builder("keycloak.node.outstanding", outstanding, AtomicInteger::get)
+                .description("Keycloak admin calls outstanding on a node")
+                .tag("node", host.toURI())
+                .register(meterRegistry);
+            this.ejections = Counter.builder("keycloak.node.ejections")
+                .description("Times a Keycloak node was ejected for failing")
+                .tag("node", host.toURI())
+                .register(meterRegistry);
+        }
+
+        /**
+         * Returns the host calls to this node are sent to.
+         *
+         * @return the host of the node
+         */
+        public HttpHost getHost() {
+            return host;
+        }
+
+        private boolean isEjected(long nowNanos) {
+            return ejected && nowNanos - ejectedUntilNanos < 0;
+        }
+    }
+}
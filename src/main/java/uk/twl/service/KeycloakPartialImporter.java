@@ -0,0 +1,221 @@
+package uk.twl.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.springframework.stereotype.Component;
+import uk.twl.config.KeycloakPartialImportProperties;
+import uk.twl.exception.KeycloakUnavailableException;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.OK;
+
+/**
+ * Creates chunks of users with a single request each, through the Keycloak realm partial import API.
+ *
+ * <p>Keycloak adds the users of a chunk in one transaction, so a chunk costs one round trip and one token check
+ * instead of one per user. Users that already exist are handled as
+ * {@code keycloak.batch.partial-import.if-resource-exists} says, and the result Keycloak reports for each user is
+ * mapped back to its outcome. A chunk that fails as a whole reports every user in it as failed. Only connection
+ * failures are retried, as a chunk that reached Keycloak may have been partly imported.
+ *
+ * <p>Keycloak treats usernames that differ only in case as the same user, so only the first of them in a chunk is
+ * imported and the others are reported as duplicates.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class KeycloakPartialImporter {
+
+    private static final String USER = "USER";
+
+    private final Keycloak keycloak;
+
+    private final KeycloakAdminGateway adminGateway;
+
+    private final KeycloakClientRegistry clientRegistry;
+
+    private final KeycloakRetryPolicy retryPolicy;
+
+    private final KeycloakUsernameIndex usernameIndex;
+
+    private final KeycloakUserCache userCache;
+
+    private final KeycloakPartialImportProperties properties;
+
+    /**
+     * Returns whether batches and imports are sent through the partial import API.
+     *
+     * @return {@code true} if {@code keycloak.batch.partial-import.enabled} is set
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Returns the number of users to send in a single partial import request.
+     *
+     * @return the chunk size
+     */
+    public int getChunkSize() {
+        return properties.getChunkSize();
+    }
+
+    /**
+     * Creates the specified users in the specified realm with a single partial import request.
+     *
+     * @param realm the realm to create the users in
+     * @param users the valid users to create
+     * @return the outcome for each user, in the same order as the given users
+     */
+    public List<KeycloakUserCreationResult> importUsers(String realm, List<KeycloakUserDto> users) {
+        Set<String> usernames = new HashSet<>();
+        List<KeycloakUserDto> distinctUsers = users.stream()
+            .filter(user -> usernames.add(user.getUsername().toLowerCase(Locale.ROOT)))
+            .toList();
+        List<KeycloakUserCreationResult> distinctResults = importDistinctUsers(realm, distinctUsers);
+        if (distinctUsers.size() == users.size()) {
+            return distinctResults;
+        }
+        usernames.clear();
+        Iterator<KeycloakUserCreationResult> results = distinctResults.iterator();
+        List<KeycloakUserCreationResult> outcomes = new ArrayList<>(users.size());
+        for (KeycloakUserDto user : users) {
+            outcomes.add(usernames.add(user.getUsername().toLowerCase(Locale.ROOT))
+                ? results.next()
+                : KeycloakUserCreationResult.duplicate(user.getUsername()));
+        }
+        return outcomes;
+    }
+
+    private List<KeycloakUserCreationResult> importDistinctUsers(String realm, List<KeycloakUserDto> users) {
+        PartialImportRepresentation partialImport = new PartialImportRepresentation();
+        partialImport.setIfResourceExists(properties.getIfResourceExists().name());
+        partialImport.setUsers(users.stream()
+            .map(user -> KeycloakRepresentations.newUser(user.getUsername(), user.getPassword()))
+            .toList());
+        try (KeycloakClientRegistry.Lease lease = clientRegistry.lease(realm)
+            .orElseGet(() -> KeycloakClientRegistry.Lease.unmanaged(keycloak))) {
+            List<KeycloakUserCreationResult> results = mapResults(users, send(realm, lease.keycloak(), partialImport));
+            results.stream()
+                .filter(result -> result.getOutcome() != KeycloakUserCreationResult.Outcome.FAILED)
+                .forEach(result -> usernameIndex.add(realm, result.getUsername()));
+            log.info("Partial import of {} users processed", users.size());
+            return results;
+        } catch (KeycloakUnavailableException e) {
+            return failAll(users, e.getStatusCode(), e.getMessage());
+        } catch (ProcessingException e) {
+            log.error("Error importing users into Keycloak", e);
+            return failAll(users, INTERNAL_SERVER_ERROR.value(), "Error creating user");
+        } finally {
+            users.forEach(user -> userCache.invalidate(realm, user.getUsername()));
+        }
+    }
+
+    private ImportResponse send(String realm, Keycloak client, PartialImportRepresentation partialImport)
+        throws KeycloakUnavailableException {
+        retryPolicy.onCall();
+        for (int attempt = 1; ; attempt++) {
+            try (Response response = adminGateway.execute(realm, "partial-import",
+                () -> client.realm(realm).partialImport(partialImport))) {
+                return response.getStatus() == OK.value()
+                    ? new ImportResponse(response.getStatus(), response.readEntity(PartialImportResults.class))
+                    : new ImportResponse(response.getStatus(), null);
+            } catch (ProcessingException e) {
+                if (!KeycloakRetryPolicy.isConnectFailure(e) || !retryPolicy.awaitRetry(realm, attempt, "connect")) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static List<KeycloakUserCreationResult> mapResults(List<KeycloakUserDto> users, ImportResponse response) {
+        if (response.results() == null) {
+            log.error("Error importing users: status code {}", response.status());
+            return failAll(users, response.status(), "Error creating user: status code " + response.status());
+        }
+        if (response.results().errorMessage() != null) {
+            log.error("Error importing users: {}", response.results().errorMessage());
+            return failAll(users, response.status(), response.results().errorMessage());
+        }
+        // Keycloak stores usernames in lower case, and reports them as stored
+        Map<String, PartialImportResult> resultsByUsername = response.results().results().stream()
+            .filter(result -> USER.equals(result.resourceType()))
+            .collect(Collectors.toMap(result -> result.resourceName().toLowerCase(Locale.ROOT),
+                Function.identity(), (first, second) -> first));
+        return users.stream()
+            .map(user -> toOutcome(user.getUsername(),
+                resultsByUsername.get(user.getUsername().toLowerCase(Locale.ROOT))))
+            .toList();
+    }
+
+    private static KeycloakUserCreationResult toOutcome(String username, PartialImportResult result) {
+        if (result == null) {
+            return KeycloakUserCreationResult.failed(username, null, "User not reported by the partial import");
+        }
+        return switch (result.action()) {
+            case "ADDED" -> KeycloakUserCreationResult.created(username);
+            case "SKIPPED" -> KeycloakUserCreationResult.duplicate(username);
+            case "OVERWRITTEN" -> KeycloakUserCreationResult.builder()
+                .username(username)
+                .outcome(KeycloakUserCreationResult.Outcome.CREATED)
+                .statusCode(OK.value())
+                .message("Existing user overwritten")
+                .build();
+            default -> KeycloakUserCreationResult.failed(username, null,
+                "Unexpected partial import action " + result.action());
+        };
+    }
+
+    private static List<KeycloakUserCreationResult> failAll(List<KeycloakUserDto> users, Integer statusCode,
+                                                            String message) {
+        return users.stream()
+            .map(user -> KeycloakUserCreationResult.failed(user.getUsername(), statusCode, message))
+            .toList();
+    }
+
+    private record ImportResponse(int status, PartialImportResults results) {
+    }
+
+    /**
+     * The results Keycloak answers a partial import with. The admin client does not ship a type for them, so they are
+     * read into this one.
+     *
+     * @param added the number of resources added
+     * @param skipped the number of resources skipped because they already existed
+     * @param overwritten the number of existing resources overwritten
+     * @param results the result for each resource
+     * @param errorMessage the reason the import failed as a whole, or {@code null} if it did not
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PartialImportResults(int added, int skipped, int overwritten, List<PartialImportResult> results,
+                                       String errorMessage) {
+    }
+
+    /**
+     * The result of a partial import for a single resource.
+     *
+     * @param action what was done with the resource: {@code ADDED}, {@code SKIPPED} or {@code OVERWRITTEN}
+     * @param resourceType the type of the resource, such as {@code USER}
+     * @param resourceName the name of the resource, which for a user is its username as stored
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PartialImportResult(String action, String resourceType, String resourceName) {
+    }
+}
@@ -0,0 +1,38 @@
+package uk.twl.service;
+
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.Collections;
+
+/**
+ * Builds the Keycloak admin API representations of the users added to Keycloak.
+ */
+public final class KeycloakRepresentations {
+
+    private KeycloakRepresentations() {
+    }
+
+    /**
+     * Builds the representation of an enabled user with the specified username and a permanent password.
+     *
+     * @param username the username of the user
+     * @param password the password of the user
+     * @return the user representation
+     */
+    public static UserRepresentation newUser(String username, String password) {
+        UserRepresentation user = new UserRepresentation();
+        user.setUsername(username);
+        user.setEnabled(true);
+        user.setCredentials(Collections.singletonList(getCredential(password)));
+        return user;
+    }
+
+    private static CredentialRepresentation getCredential(String password) {
+        CredentialRepresentation credential = new CredentialRepresentation();
+        credential.setType(CredentialRepresentation.PASSWORD);
+        credential.setValue(password);
+        credential.setTemporary(false);
+        return credential;
+    }
+}
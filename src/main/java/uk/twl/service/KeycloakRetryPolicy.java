@@ -0,0 +1,126 @@
+package uk.twl.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.ConnectTimeoutException;
+import uk.twl.config.KeycloakRetryProperties;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a failed Keycloak admin call is retried, and waits before the retry.
+ *
+ * <p>Retries wait a random time up to an exponentially growing bound, so retries of calls that failed together do not
+ * hit Keycloak together again. They are also drawn from a budget that every call adds {@code keycloak.retry.budget-ratio}
+ * retries to, topped up with {@code keycloak.retry.min-retries-per-second}, so that while Keycloak is down retries add a
+ * bounded fraction to the load instead of multiplying it. Retries are counted as {@code keycloak.admin.retries}, and
+ * retries denied by the budget as {@code keycloak.admin.retries.denied}, both tagged with the realm and the reason.
+ */
+@Slf4j
+public class KeycloakRetryPolicy {
+
+    // Up to ten seconds' worth of the minimum retry rate can be saved up for a burst of failures
+    private static final double BUDGET_SECONDS = 10;
+
+    private final KeycloakRetryProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final double maxBudget;
+
+    private double budget;
+
+    private long lastRefillNanos = System.nanoTime();
+
+    public KeycloakRetryPolicy(KeycloakRetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.maxBudget = Math.max(1, properties.getMinRetriesPerSecond() * BUDGET_SECONDS);
+        this.budget = maxBudget;
+    }
+
+    /**
+     * Returns whether the specified exception of a Keycloak call means the request never reached Keycloak, so it is
+     * safe to send again.
+     *
+     * @param throwable the exception thrown by the call
+     * @return {@code true} if the connection to Keycloak could not be established
+     */
+    public static boolean isConnectFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException
+                || cause instanceof NoRouteToHostException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the specified status code of a Keycloak response is a transient failure worth retrying.
+     *
+     * @param statusCode the status code
+     * @return {@code true} for 502, 503 and 504
+     */
+    public static boolean isRetryableStatus(int statusCode) {
+        return statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    /**
+     * Records a first attempt of a call, adding to the retry budget.
+     */
+    public synchronized void onCall() {
+        refill();
+        budget = Math.min(maxBudget, budget + properties.getBudgetRatio());
+    }
+
+    /**
+     * Waits before retrying a call that failed, if it may be retried.
+     *
+     * @param realm the realm the call is made against
+     * @param attempt the number of the attempt that failed, starting with 1
+     * @param reason why the attempt failed, such as a status code
+     * @return {@code true} if the call should be retried now, {@code false} if the failure should be reported
+     */
+    public boolean awaitRetry(String realm, int attempt, String reason) {
+        if (!properties.isEnabled() || attempt >= properties.getMaxAttempts()) {
+            return false;
+        }
+        if (!withdraw()) {
+            log.warn("Retry budget exhausted, not retrying Keycloak call that failed with {}", reason);
+            meterRegistry.counter("keycloak.admin.retries.denied", "realm", String.valueOf(realm), "reason", reason)
+                .increment();
+            return false;
+        }
+        long bound = Math.min(properties.getMaxBackoff().toNanos(),
+            properties.getInitialBackoff().toNanos() << Math.min(attempt - 1, 30));
+        long backoffNanos = ThreadLocalRandom.current().nextLong(Math.max(1, bound));
+        log.debug("Retrying Keycloak call that failed with {} in {} ms", reason, TimeUnit.NANOSECONDS.toMillis(backoffNanos));
+        meterRegistry.counter("keycloak.admin.retries", "realm", String.valueOf(realm), "reason", reason).increment();
+        try {
+            TimeUnit.NANOSECONDS.sleep(backoffNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private synchronized boolean withdraw() {
+        refill();
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        budget = Math.min(maxBudget, budget + (now - lastRefillNanos) / 1e9 * properties.getMinRetriesPerSecond());
+        lastRefillNanos = now;
+    }
+}
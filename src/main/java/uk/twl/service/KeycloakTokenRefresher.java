@@ -0,0 +1,105 @@
+package uk.twl.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.token.TokenManager;
+import org.keycloak.representations.AccessTokenResponse;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import uk.twl.config.KeycloakTokenProperties;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the access token of a Keycloak admin client in the background before it expires, so requests never wait
+ * for a token request.
+ *
+ * <p>Refreshes run on a single thread, and the admin client's {@link TokenManager} serializes them with any refresh a
+ * request still has to make, so only one refresh is ever in flight. The token age and refresh latency are published
+ * as the {@code keycloak.token.age} and {@code keycloak.token.refresh} metrics.
+ */
+@Slf4j
+public class KeycloakTokenRefresher implements AutoCloseable {
+
+    private static final long NEVER = -1;
+
+    private final Keycloak keycloak;
+
+    private final KeycloakTokenProperties properties;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Timer successfulRefreshes;
+
+    private final Timer failedRefreshes;
+
+    private volatile long lastRefreshNanos = NEVER;
+
+    public KeycloakTokenRefresher(Keycloak keycloak, KeycloakTokenProperties properties, MeterRegistry meterRegistry) {
+        this.keycloak = keycloak;
+        this.properties = properties;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("keycloak-token-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.successfulRefreshes = Timer.builder("keycloak.token.refresh")
+            .description("Time taken to refresh the Keycloak admin access token")
+            .tag("outcome", "success")
+            .register(meterRegistry);
+        this.failedRefreshes = Timer.builder("keycloak.token.refresh")
+            .description("Time taken to refresh the Keycloak admin access token")
+            .tag("outcome", "failure")
+            .register(meterRegistry);
+        TimeGauge.builder("keycloak.token.age", this, TimeUnit.NANOSECONDS, KeycloakTokenRefresher::tokenAgeNanos)
+            .description("Time since the Keycloak admin access token was last refreshed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Starts refreshing the access token, fetching the first one straight away.
+     */
+    public void start() {
+        scheduler.execute(this::refresh);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void refresh() {
+        long start = System.nanoTime();
+        try {
+            TokenManager tokenManager = keycloak.tokenManager();
+            tokenManager.setMinTokenValidity(properties.getMinValidity().toSeconds());
+            AccessTokenResponse token = lastRefreshNanos == NEVER ? tokenManager.grantToken() : tokenManager.refreshToken();
+            lastRefreshNanos = System.nanoTime();
+            successfulRefreshes.record(lastRefreshNanos - start, TimeUnit.NANOSECONDS);
+            Duration nextRefresh = nextRefreshDelay(Duration.ofSeconds(token.getExpiresIn()));
+            log.debug("Keycloak access token refreshed, next refresh in {}", nextRefresh);
+            scheduler.schedule(this::refresh, nextRefresh.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            failedRefreshes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.warn("Error refreshing Keycloak access token, retrying in {}: {}", properties.getRetryInterval(), e.toString());
+            scheduler.schedule(this::refresh, properties.getRetryInterval().toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Duration nextRefreshDelay(Duration expiresIn) {
+        Duration delay = expiresIn.minus(properties.getRefreshAhead());
+        if (delay.compareTo(expiresIn.dividedBy(2)) < 0) {
+            // The token is too short-lived to refresh that far ahead, so refresh it half way through its lifetime
+            delay = expiresIn.dividedBy(2);
+        }
+        return delay.isZero() ? properties.getRetryInterval() : delay;
+    }
+
+    private double tokenAgeNanos() {
+        long lastRefresh = lastRefreshNanos;
+        return lastRefresh == NEVER ? Double.NaN : System.nanoTime() - lastRefresh;
+    }
+}
@@ -0,0 +1,123 @@
+package uk.twl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import uk.twl.config.KeycloakUserCacheProperties;
+import uk.twl.model.KeycloakUser;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded cache of user lookups in front of Keycloak, including lookups of users that do not exist.
+ *
+ * <p>Lookups are kept for {@code keycloak.user-cache.expire-after-write}, and the least recently used ones are evicted
+ * beyond {@code keycloak.user-cache.maximum-size}. Creations made through this service invalidate the username they
+ * create, and a lookup that was in flight while its username was invalidated is not cached, so it cannot bring back a
+ * "not found" from before the creation. Usernames are matched case-insensitively, like Keycloak does. Hits and misses are published as the
+ * {@code cache.*} metrics of {@code keycloak.user.cache}.
+ */
+@Component
+public class KeycloakUserCache {
+
+    // Invalidations are counted per stripe of usernames, as counting them per username would grow without bound
+    private static final int STRIPES = 256;
+
+    private final boolean enabled;
+
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    private final Cache<String, Optional<KeycloakUser>> users;
+
+    public KeycloakUserCache(KeycloakUserCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.users = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getExpireAfterWrite())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "keycloak.user.cache");
+    }
+
+    /**
+     * Returns the cached lookup of the specified username.
+     *
+     * @param realm the realm of the user
+     * @param username the username to look up
+     * @return the cached lookup, which is an empty {@code Optional} if the user was not found, or {@code null} if the
+     *         username is not cached
+     */
+    @SuppressWarnings("OptionalAssignedToNull")
+    public Optional<KeycloakUser> get(String realm, String username) {
+        return enabled ? users.getIfPresent(key(realm, username)) : null;
+    }
+
+    /**
+     * Returns the stamp to cache a lookup of the specified username with, taken before Keycloak is called.
+     *
+     * @param realm the realm of the user
+     * @param username the username about to be looked up
+     * @return the stamp to pass to {@link #put(String, String, Optional, long)}
+     */
+    public long stamp(String realm, String username) {
+        return invalidations.get(stripe(key(realm, username)));
+    }
+
+    /**
+     * Caches the lookup of the specified username, unless the username was invalidated since the specified stamp was
+     * taken, as the lookup may then predate a creation.
+     *
+     * @param realm the realm of the user
+     * @param username the username that was looked up
+     * @param user the user found, or an empty {@code Optional} if the user was not found
+     * @param stamp the stamp taken before the lookup
+     */
+    public void put(String realm, String username, Optional<KeycloakUser> user, long stamp) {
+        if (enabled) {
+            String key = key(realm, username);
+            int stripe = stripe(key);
+            // Runs atomically with an invalidation of the same username
+            users.asMap().compute(key, (ignored, cached) -> invalidations.get(stripe) == stamp ? user : cached);
+        }
+    }
+
+    /**
+     * Caches the lookup of the specified username.
+     *
+     * @param realm the realm of the user
+     * @param username the username that was looked up
+     * @param user the user found, or an empty {@code Optional} if the user was not found
+     */
+    public void put(String realm, String username, Optional<KeycloakUser> user) {
+        if (enabled) {
+            users.put(key(realm, username), user);
+        }
+    }
+
+    /**
+     * Forgets the cached lookup of the specified username, after the user may have been created.
+     *
+     * @param realm the realm of the user
+     * @param username the username to forget
+     */
+    public void invalidate(String realm, String username) {
+        String key = key(realm, username);
+        int stripe = stripe(key);
+        users.asMap().compute(key, (ignored, cached) -> {
+            invalidations.incrementAndGet(stripe);
+            return null;
+        });
+    }
+
+    private static int stripe(String key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+
+    private static String key(String realm, String username) {
+        return realm + '/' + username.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,114 @@
+package uk.twl.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.constraints.NotBlank;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.stereotype.Component;
+import uk.twl.model.KeycloakUserDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a {@link KeycloakUserDto} request body straight into the Keycloak representation of the new user, without
+ * binding the DTO or running Bean Validation.
+ *
+ * <p>The body is read token by token, so the only objects allocated are the username and password strings and the
+ * representation itself. The {@code @NotBlank} constraints of the DTO are checked directly, with the messages read
+ * from the DTO's annotations once, and violations are reported in the field to message shape of
+ * {@code KeycloakUserExceptionHandler.handleValidationExceptions}. Unknown fields are ignored, as the application's
+ * {@link ObjectMapper} does.
+ */
+@Component
+public class KeycloakUserCodec {
+
+    private static final String USERNAME = "username";
+
+    private static final String PASSWORD = "password";
+
+    private static final String USERNAME_REQUIRED = notBlankMessage(USERNAME);
+
+    private static final String PASSWORD_REQUIRED = notBlankMessage(PASSWORD);
+
+    private final JsonFactory jsonFactory;
+
+    public KeycloakUserCodec(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * The outcome of reading a user, either the representation of a valid user or the constraint violations.
+     *
+     * @param user the representation of the user, or {@code null} if the user is invalid
+     * @param errors the message of each invalid field, or {@code null} if the user is valid
+     */
+    public record DecodedUser(UserRepresentation user, Map<String, String> errors) {
+    }
+
+    /**
+     * Reads and validates a user from the specified JSON body.
+     *
+     * @param body the JSON body, a {@link KeycloakUserDto} object
+     * @return the representation of the user, or the constraint violations if it is invalid
+     * @throws JsonParseException if the body is empty, is not a JSON object, or is malformed
+     * @throws IOException if the body could not be read
+     */
+    public DecodedUser read(InputStream body) throws IOException {
+        String username = null;
+        String password = null;
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a user object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    if (USERNAME.equals(field) || PASSWORD.equals(field)) {
+                        throw new JsonParseException(parser, "Expected a string for " + field);
+                    }
+                    parser.skipChildren();
+                } else if (USERNAME.equals(field)) {
+                    username = parser.getValueAsString();
+                } else if (PASSWORD.equals(field)) {
+                    password = parser.getValueAsString();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new JsonParseException(parser, "Expected the end of the user object");
+            }
+        }
+        Map<String, String> errors = null;
+        if (isBlank(username)) {
+            errors = new HashMap<>();
+            errors.put(USERNAME, USERNAME_REQUIRED);
+        }
+        if (isBlank(password)) {
+            errors = errors == null ? new HashMap<>() : errors;
+            errors.put(PASSWORD, PASSWORD_REQUIRED);
+        }
+        if (errors != null) {
+            return new DecodedUser(null, errors);
+        }
+        return new DecodedUser(KeycloakRepresentations.newUser(username, password), null);
+    }
+
+    // Matches NotBlankValidator, which trims the value rather than checking for Unicode whitespace
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String notBlankMessage(String field) {
+        try {
+            return KeycloakUserDto.class.getDeclaredField(field).getAnnotation(NotBlank.class).message();
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("KeycloakUserDto has no " + field + " field", e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package uk.twl.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.stream.Collectors.joining;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * Validates the users of batch operations one at a time, so an invalid user can be reported without rejecting the
+ * rest of the batch.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeycloakUserDtoValidator {
+
+    private final Validator validator;
+
+    /**
+     * Validates the specified user against the constraints of {@link KeycloakUserDto}.
+     *
+     * @param user the user to validate
+     * @return the failed outcome of the user if it is invalid, otherwise empty
+     */
+    public Optional<KeycloakUserCreationResult> validate(KeycloakUserDto user) {
+        if (user == null) {
+            return Optional.of(KeycloakUserCreationResult.failed(null, BAD_REQUEST.value(), "User is required"));
+        }
+        Set<ConstraintViolation<KeycloakUserDto>> violations = validator.validate(user);
+        if (violations.isEmpty()) {
+            return Optional.empty();
+        }
+        String message = violations.stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(joining(", "));
+        return Optional.of(KeycloakUserCreationResult.failed(user.getUsername(), BAD_REQUEST.value(), message));
+    }
+}
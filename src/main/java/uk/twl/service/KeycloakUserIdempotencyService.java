@@ -0,0 +1,177 @@
+package uk.twl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import uk.twl.config.KeycloakIdempotencyProperties;
+import uk.twl.exception.DuplicateKeycloakUserException;
+import uk.twl.exception.IdempotencyKeyReuseException;
+import uk.twl.exception.KeycloakCommunicationException;
+import uk.twl.exception.KeycloakUnavailableException;
+import uk.twl.exception.KeycloakUserCreationException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A service for creating users in Keycloak at most once per idempotency key, so clients can safely retry a creation
+ * whose response they did not receive.
+ *
+ * <p>The first request with a key creates the user, requests with the same key that arrive while it is in flight wait
+ * for its outcome, and later requests replay that outcome without calling Keycloak. When the outcome is inconclusive,
+ * because the response was lost or Keycloak answered with a server error, a later request tries again, and a 409 is
+ * then reported as created if the user was created since the key was first sent. The key is only forgotten when its
+ * first attempt did not call Keycloak at all; a retry that could not call Keycloak leaves the earlier attempt
+ * inconclusive. Outcomes are kept in memory for {@code keycloak.idempotency.expire-after-write}, so a
+ * retry must reach the same instance.
+ */
+@Service
+@Slf4j
+public class KeycloakUserIdempotencyService {
+
+    private final KeycloakUserService userService;
+
+    private final Cache<String, Attempt> attempts;
+
+    public KeycloakUserIdempotencyService(KeycloakUserService userService, KeycloakIdempotencyProperties properties,
+                                          MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.attempts = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getExpireAfterWrite())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, attempts, "keycloak.idempotency");
+    }
+
+    /**
+     * Creates a new user with the specified username and password in Keycloak, unless a user was already created with
+     * the specified idempotency key.
+     *
+     * @param idempotencyKey the key identifying the creation across retries
+     * @param username the username of the new user
+     * @param password the password of the new user
+     * @throws KeycloakUserCreationException if the user creation fails
+     * @throws DuplicateKeycloakUserException if a user with the same username already existed when the key was first
+     *                                        sent
+     * @throws IdempotencyKeyReuseException if the key was first sent with a different username or password
+     */
+    public void createUser(String idempotencyKey, String username, String password)
+        throws KeycloakUserCreationException {
+        byte[] fingerprint = fingerprint(username, password);
+        Attempt attempt = new Attempt(fingerprint, System.currentTimeMillis(), false, new CompletableFuture<>());
+        Attempt previous;
+        while ((previous = attempts.asMap().putIfAbsent(idempotencyKey, attempt)) != null) {
+            if (!MessageDigest.isEqual(previous.fingerprint(), fingerprint)) {
+                log.error("Idempotency key {} reused for a different user", idempotencyKey);
+                throw new IdempotencyKeyReuseException(idempotencyKey);
+            }
+            if (!isAmbiguous(previous)) {
+                replay(idempotencyKey, previous);
+                return;
+            }
+            // The previous attempt may have created the user, so it is retried as of the time it was first made
+            Attempt retry = new Attempt(fingerprint, previous.startedMillis(), true, new CompletableFuture<>());
+            if (attempts.asMap().replace(idempotencyKey, previous, retry)) {
+                log.debug("Retrying the inconclusive creation of idempotency key {}", idempotencyKey);
+                attempt = retry;
+                break;
+            }
+        }
+        create(idempotencyKey, attempt, username, password);
+    }
+
+    private void create(String idempotencyKey, Attempt attempt, String username, String password)
+        throws KeycloakUserCreationException {
+        try {
+            try {
+                userService.createUser(username, password);
+            } catch (DuplicateKeycloakUserException e) {
+                if (!attempt.retry() || !userService.wasCreatedSince(username, attempt.startedMillis())) {
+                    throw e;
+                }
+                log.debug("User {} was created by the earlier attempt of idempotency key {}", username, idempotencyKey);
+            }
+            attempt.outcome().complete(null);
+        } catch (KeycloakUnavailableException e) {
+            if (!attempt.retry() && !e.mayHaveSucceeded()) {
+                // Keycloak was never called with this key, so a retry can safely start over
+                attempts.asMap().remove(idempotencyKey, attempt);
+            }
+            // Otherwise the attempt stays inconclusive, as of the time the key was first sent
+            attempt.outcome().completeExceptionally(e);
+            throw e;
+        } catch (KeycloakUserCreationException | RuntimeException e) {
+            attempt.outcome().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void replay(String idempotencyKey, Attempt previous) throws KeycloakUserCreationException {
+        log.debug("Replaying the outcome of idempotency key {}", idempotencyKey);
+        Throwable failure = failure(previous);
+        if (failure instanceof KeycloakUserCreationException cause) {
+            throw cause;
+        }
+        if (failure instanceof RuntimeException cause) {
+            throw cause;
+        }
+    }
+
+    /**
+     * Returns whether the specified attempt failed without telling whether Keycloak created the user: the response
+     * was lost, Keycloak answered with a server error, or the failure is unexpected.
+     */
+    private static boolean isAmbiguous(Attempt attempt) {
+        if (!attempt.outcome().isCompletedExceptionally()) {
+            return false;
+        }
+        Throwable failure = failure(attempt);
+        if (failure instanceof KeycloakCommunicationException) {
+            return true;
+        }
+        if (failure instanceof KeycloakUserCreationException e) {
+            return e.getStatusCode() == null || e.getStatusCode() >= 500;
+        }
+        return true;
+    }
+
+    // Waits for the attempt if it is still in flight
+    private static Throwable failure(Attempt attempt) {
+        try {
+            attempt.outcome().join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause();
+        }
+    }
+
+    // Only a digest of the password is kept, so cached attempts never hold credentials
+    private static byte[] fingerprint(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(username).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest.digest(String.valueOf(password).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A user creation made with an idempotency key.
+     *
+     * @param fingerprint a digest of the username and password the key was first sent with
+     * @param startedMillis when the key was first sent
+     * @param retry whether this retries an attempt that may have created the user
+     * @param outcome completes when the creation succeeds, or exceptionally with the reason it failed
+     */
+    private record Attempt(byte[] fingerprint, long startedMillis, boolean retry, CompletableFuture<Void> outcome) {
+    }
+}
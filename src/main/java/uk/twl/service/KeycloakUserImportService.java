@@ -0,0 +1,110 @@
+package uk.twl.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * A service for importing users into Keycloak from a stream of NDJSON or CSV records.
+ *
+ * <p>Records are read and created in chunks of {@code keycloak.import.chunk-size}, and the outcome of each record is
+ * written as soon as its chunk completes, so only a couple of chunks are ever held in memory. The next chunk is read
+ * while the previous one is being created in Keycloak.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KeycloakUserImportService {
+
+    public static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+        .addModule(new ParameterNamesModule())
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+
+    private final KeycloakUserService userService;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${keycloak.import.chunk-size}")
+    private int chunkSize;
+
+    /**
+     * Imports the users read from the specified input and writes the outcome of each user to the specified output as
+     * NDJSON.
+     *
+     * <p>A record that cannot be parsed is reported as a failure and ends the import, as the rest of the input cannot
+     * be read reliably.
+     *
+     * @param input the NDJSON or CSV records of the users to import
+     * @param format the format of the records, either {@link MediaType#APPLICATION_NDJSON} or {@link #TEXT_CSV}
+     * @param output the output the outcome of each user is written to
+     * @throws IOException if the outcomes could not be written
+     */
+    public void importUsers(InputStream input, MediaType format, OutputStream output) throws IOException {
+        CompletableFuture<List<KeycloakUserCreationResult>> inFlight = CompletableFuture.completedFuture(List.of());
+        List<KeycloakUserDto> chunk = new ArrayList<>(chunkSize);
+        JsonProcessingException malformedRecord = null;
+        long imported = 0;
+        try (MappingIterator<KeycloakUserDto> records = readerFor(format).readValues(input)) {
+            while (records.hasNextValue()) {
+                chunk.add(records.nextValue());
+                if (chunk.size() == chunkSize) {
+                    imported += writeResults(inFlight.join(), output);
+                    inFlight = userService.createUsersAsync(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            malformedRecord = e;
+        }
+        imported += writeResults(inFlight.join(), output);
+        imported += writeResults(userService.createUsers(chunk), output);
+        if (malformedRecord != null) {
+            String message = malformedRecord.getLocation() == null
+                ? "Malformed user record"
+                : "Malformed user record at line " + malformedRecord.getLocation().getLineNr();
+            log.error(message);
+            writeResults(List.of(KeycloakUserCreationResult.failed(null, BAD_REQUEST.value(), message)), output);
+        }
+        log.info("Import of {} users processed", imported);
+    }
+
+    private ObjectReader readerFor(MediaType format) {
+        if (TEXT_CSV.isCompatibleWith(format)) {
+            return CSV_MAPPER.readerFor(KeycloakUserDto.class).with(CsvSchema.emptySchema().withHeader());
+        }
+        return objectMapper.readerFor(KeycloakUserDto.class);
+    }
+
+    private int writeResults(List<KeycloakUserCreationResult> results, OutputStream output) throws IOException {
+        for (KeycloakUserCreationResult result : results) {
+            output.write(objectMapper.writeValueAsBytes(result));
+            output.write('\n');
+        }
+        output.flush();
+        return results.size();
+    }
+}
@@ -0,0 +1,109 @@
+package uk.twl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Service;
+import uk.twl.config.KeycloakJobProperties;
+import uk.twl.exception.KeycloakUserJobQueueFullException;
+import uk.twl.model.KeycloakUserDto;
+import uk.twl.model.KeycloakUserJob;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A service for adding users to Keycloak in the background, so callers that do not need to wait for Keycloak get an
+ * answer straight away.
+ *
+ * <p>Accepted creations wait in a bounded queue drained by {@code keycloak.jobs.concurrency} workers, and are rejected
+ * once {@code keycloak.jobs.queue-capacity} are waiting. The state of each job can be polled for
+ * {@code keycloak.jobs.retention} after it was accepted. Jobs are kept in memory, so queued jobs are lost on shutdown
+ * and must be polled on the instance that accepted them. The queue and workers are published as the
+ * {@code executor.*} metrics of {@code keycloak.user.jobs}. Jobs run with the MDC of the request that submitted them,
+ * so their logs carry its correlation ID.
+ */
+@Service
+@Slf4j
+public class KeycloakUserJobService implements AutoCloseable {
+
+    private final KeycloakUserService userService;
+
+    private final ThreadPoolExecutor workers;
+
+    private final TaskDecorator taskDecorator;
+
+    private final Cache<String, KeycloakUserJob> jobs;
+
+    public KeycloakUserJobService(KeycloakUserService userService, KeycloakJobProperties properties,
+                                  TaskDecorator mdcTaskDecorator, MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.taskDecorator = mdcTaskDecorator;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("keycloak-job-");
+        threadFactory.setDaemon(true);
+        this.workers = new ThreadPoolExecutor(properties.getConcurrency(), properties.getConcurrency(),
+            0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), threadFactory,
+            new ThreadPoolExecutor.AbortPolicy());
+        this.jobs = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getRetention())
+            .build();
+        new ExecutorServiceMetrics(workers, "keycloak.user.jobs", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Accepts the specified user to be created in Keycloak in the background.
+     *
+     * @param user the user to create, already validated
+     * @return the accepted job
+     * @throws KeycloakUserJobQueueFullException if too many user creations are already queued
+     */
+    public KeycloakUserJob submit(KeycloakUserDto user) throws KeycloakUserJobQueueFullException {
+        KeycloakUserJob job = KeycloakUserJob.builder()
+            .id(UUID.randomUUID().toString())
+            .username(user.getUsername())
+            .status(KeycloakUserJob.Status.QUEUED)
+            .build();
+        jobs.put(job.getId(), job);
+        try {
+            workers.execute(taskDecorator.decorate(() -> run(job, user)));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.getId());
+            log.warn("Job queue full, rejected user {}", user.getUsername());
+            throw new KeycloakUserJobQueueFullException();
+        }
+        return job;
+    }
+
+    /**
+     * Returns the current state of the specified job.
+     *
+     * @param id the ID of the job
+     * @return the job, or empty if there is no such job or it expired
+     */
+    public Optional<KeycloakUserJob> find(String id) {
+        return Optional.ofNullable(jobs.getIfPresent(id));
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private void run(KeycloakUserJob job, KeycloakUserDto user) {
+        jobs.put(job.getId(), job.toBuilder().status(KeycloakUserJob.Status.RUNNING).build());
+        jobs.put(job.getId(), job.toBuilder()
+            .status(KeycloakUserJob.Status.DONE)
+            .result(userService.tryCreateUser(user))
+            .build());
+    }
+}
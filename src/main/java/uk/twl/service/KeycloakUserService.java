@@ -1,19 +1,44 @@
 package uk.twl.service;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.keycloak.admin.client.Keycloak;
-import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 import uk.twl.exception.DuplicateKeycloakUserException;
 import uk.twl.exception.KeycloakCommunicationException;
+import uk.twl.exception.KeycloakUnavailableException;
 import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.exception.UnknownKeycloakRealmException;
+import uk.twl.logging.SampledLog;
+import uk.twl.model.KeycloakUser;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
 
 import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
-import java.util.Collections;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /**
  * A service for adding users to Keycloak.
@@ -23,50 +48,498 @@ import java.util.Collections;
 @Slf4j
 public class KeycloakUserService {
 
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(5);
+
     private final Keycloak keycloak;
 
+    private final KeycloakAdminGateway adminGateway;
+
+    private final KeycloakUserDtoValidator userValidator;
+
+    private final AsyncTaskExecutor applicationTaskExecutor;
+
+    private final KeycloakUsernameIndex usernameIndex;
+
+    private final KeycloakClientRegistry clientRegistry;
+
+    private final KeycloakRetryPolicy retryPolicy;
+
+    private final KeycloakUserCache userCache;
+
+    private final KeycloakPartialImporter partialImporter;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final ConcurrentMap<String, CompletableFuture<Void>> inFlightCreations = new ConcurrentHashMap<>();
+
+    // Duplicates are the client's mistake and can come by the thousand from a replayed batch
+    private final SampledLog duplicateLog = new SampledLog(10, Duration.ofSeconds(10));
+
     @Value("${keycloak.realm}")
     private String realmName;
 
+    @Value("${keycloak.batch.concurrency}")
+    private int batchConcurrency;
+
+    @Value("${keycloak.list.page-size}")
+    private int listPageSize;
+
+    @Value("${keycloak.list.max-limit}")
+    private int listMaxLimit;
+
     /**
-     * Creates a new user with the specified username and password in Keycloak.
+     * Creates a new user with the specified username and password in the configured {@code keycloak.realm}.
      *
      * @param username the username of the new user
      * @param password the password of the new user
      * @throws KeycloakUserCreationException if the user creation fails
      * @throws DuplicateKeycloakUserException if a user with the same username already exists in Keycloak
      * @throws KeycloakCommunicationException if there was a problem communicating with the Keycloak server
+     * @throws KeycloakUnavailableException if Keycloak was not called because it is failing or overloaded
+     * @see #createUser(String, String, String)
      */
+    @Observed(name = "keycloak.user.create", contextualName = "create-user")
     public void createUser(String username, String password)
         throws KeycloakUserCreationException {
-        UserRepresentation user = new UserRepresentation();
-        user.setUsername(username);
-        user.setEnabled(true);
-        user.setCredentials(Collections.singletonList(getCredential(password)));
-        try (Response response = keycloak.realm(realmName).users().create(user)) {
-            int statusCode = response.getStatus();
-            switch (statusCode) {
-                case 201 -> log.info("User {} successfully created in Keycloak", username);
-                case 409 -> {
-                    log.error("Duplicate user {}", username);
-                    throw new DuplicateKeycloakUserException(username);
+        createUser(realmName, username, password);
+    }
+
+    /**
+     * Creates a new user with the specified username and password in the specified realm, using the realm's own admin
+     * client from the {@link KeycloakClientRegistry} if it has one. Only the configured {@code keycloak.realm} and the
+     * realms listed under {@code keycloak.tenants.realms} are served.
+     *
+     * <p>A username the {@link KeycloakUsernameIndex} knows to exist is rejected as a duplicate without calling
+     * Keycloak. Concurrent creations of the same username share a single call to Keycloak: the first one makes the
+     * call, and the others fail as duplicates once it completes, or with its failure if it fails.
+     *
+     * <p>Failures that are safe to retry are retried as the {@link KeycloakRetryPolicy} allows: connection failures,
+     * 502, 503 and 504 responses, and a 401 response once the access token has been refreshed. If a retry is answered
+     * with 409 after an attempt that may have reached Keycloak, the user is looked up, and reported as created rather
+     * than as a duplicate if it was created since the first attempt.
+     *
+     * @param realm the realm to create the user in
+     * @param username the username of the new user
+     * @param password the password of the new user
+     * @throws KeycloakUserCreationException if the user creation fails
+     * @throws DuplicateKeycloakUserException if a user with the same username already exists in Keycloak
+     * @throws KeycloakCommunicationException if there was a problem communicating with the Keycloak server
+     * @throws KeycloakUnavailableException if Keycloak was not called because it is failing or overloaded
+     * @throws UnknownKeycloakRealmException if the realm is not served
+     */
+    @Observed(name = "keycloak.user.create", contextualName = "create-user")
+    public void createUser(String realm, String username, String password)
+        throws KeycloakUserCreationException {
+        createUser(realm, KeycloakRepresentations.newUser(username, password));
+    }
+
+    /**
+     * Creates the user of the specified Keycloak representation in the configured {@code keycloak.realm}, for callers
+     * that read the request straight into the representation.
+     *
+     * @param user the representation of the new user, with its username and password credential
+     * @throws KeycloakUserCreationException if the user creation fails
+     * @throws DuplicateKeycloakUserException if a user with the same username already exists in Keycloak
+     * @throws KeycloakCommunicationException if there was a problem communicating with the Keycloak server
+     * @throws KeycloakUnavailableException if Keycloak was not called because it is failing or overloaded
+     * @see #createUser(String, String, String)
+     */
+    @Observed(name = "keycloak.user.create", contextualName = "create-user")
+    public void createUser(UserRepresentation user) throws KeycloakUserCreationException {
+        createUser(realmName, user);
+    }
+
+    private void createUser(String realm, UserRepresentation user) throws KeycloakUserCreationException {
+        try (KeycloakClientRegistry.Lease lease = clientFor(realm)) {
+            Keycloak client = lease.keycloak();
+            String username = user.getUsername();
+            if (usernameIndex.contains(realm, username)) {
+                logDuplicate(username);
+                throw new DuplicateKeycloakUserException(username);
+            }
+            // Differently cased usernames share a call too, as Keycloak treats them as the same user
+            String key = realm + '/' + username.toLowerCase(Locale.ROOT);
+            CompletableFuture<Void> creation = new CompletableFuture<>();
+            CompletableFuture<Void> inFlight = inFlightCreations.putIfAbsent(key, creation);
+            if (inFlight != null) {
+                awaitInFlightCreation(inFlight, username);
+                return;
+            }
+            try {
+                createKeycloakUser(client, realm, user);
+                creation.complete(null);
+            } catch (KeycloakUserCreationException | RuntimeException e) {
+                creation.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlightCreations.remove(key, creation);
+                userCache.invalidate(realm, username);
+            }
+        }
+    }
+
+    /**
+     * Looks up the user with the specified username in the configured {@code keycloak.realm}.
+     *
+     * @param username the username to look up, matched case-insensitively
+     * @return the user, or an empty {@code Optional} if there is no user with that username
+     * @throws KeycloakCommunicationException if there was a problem communicating with the Keycloak server
+     * @throws KeycloakUnavailableException if Keycloak was not called because it is failing or overloaded
+     * @see #findUser(String, String)
+     */
+    public Optional<KeycloakUser> findUser(String username) throws KeycloakUserCreationException {
+        return findUser(realmName, username);
+    }
+
+    /**
+     * Looks up the user with the specified username in the specified realm, answering from the
+     * {@link KeycloakUserCache} when the username was looked up recently.
+     *
+     * @param realm the realm to look the user up in
+     * @param username the username to look up, matched case-insensitively
+     * @return the user, or an empty {@code Optional} if there is no user with that username
+     * @throws KeycloakCommunicationException if there was a problem communicating with the Keycloak server
+     * @throws KeycloakUnavailableException if Keycloak was not called because it is failing or overloaded
+     * @throws UnknownKeycloakRealmException if the realm is not served
+     */
+    public Optional<KeycloakUser> findUser(String realm, String username) throws KeycloakUserCreationException {
+        try (KeycloakClientRegistry.Lease lease = clientFor(realm)) {
+            Keycloak client = lease.keycloak();
+            Optional<KeycloakUser> cached = userCache.get(realm, username);
+            if (cached != null) {
+                return cached;
+            }
+            long stamp = userCache.stamp(realm, username);
+            List<UserRepresentation> users;
+            try {
+                users = adminGateway.execute(realm, "get-user",
+                    () -> client.realm(realm).users().search(username, true));
+            } catch (ProcessingException | WebApplicationException e) {
+                log.error("Error looking up user in Keycloak", e);
+                throw new KeycloakCommunicationException("Error looking up user", e);
+            }
+            Optional<KeycloakUser> user = users.stream()
+                .filter(found -> username.equalsIgnoreCase(found.getUsername()))
+                .findFirst()
+                .map(KeycloakUser::of);
+            userCache.put(realm, username, user, stamp);
+            return user;
+        }
+    }
+
+    /**
+     * Returns whether the user with the specified username in the configured {@code keycloak.realm} was created no
+     * earlier than the specified time, telling a 409 caused by an earlier attempt of the same creation from a genuine
+     * duplicate.
+     *
+     * @param username the username of the user
+     * @param sinceMillis the time of the earlier attempt, in milliseconds since the epoch
+     * @return {@code true} if the user exists and was created since that time
+     * @throws KeycloakCommunicationException if there was a problem communicating with the Keycloak server
+     * @throws KeycloakUnavailableException if Keycloak was not called because it is failing or overloaded
+     */
+    boolean wasCreatedSince(String username, long sinceMillis) throws KeycloakUserCreationException {
+        // Allow for the clocks of this instance and Keycloak being slightly apart
+        long earliestMillis = sinceMillis - CLOCK_SKEW.toMillis();
+        return findUser(username)
+            .map(KeycloakUser::getCreatedTimestamp)
+            .filter(createdTimestamp -> createdTimestamp >= earliestMillis)
+            .isPresent();
+    }
+
+    /**
+     * Lists the users of the configured {@code keycloak.realm} in username order, passing each page of users to the
+     * specified consumer as soon as it arrives from Keycloak.
+     *
+     * <p>Users are read from Keycloak in pages of {@code keycloak.list.page-size}, and at most
+     * {@code keycloak.list.max-limit} users are listed at once. Every call either moves past the specified position or
+     * reports that there are no more users. The listed users are cached for later lookups.
+     *
+     * @param first the position of the first user to list, starting at 0
+     * @param limit the maximum number of users to list
+     * @param pages the consumer of each page of users
+     * @return the position of the user following the listed ones, or empty if there are no more users
+     * @throws KeycloakCommunicationException if there was a problem communicating with the Keycloak server
+     * @throws KeycloakUnavailableException if Keycloak was not called because it is failing or overloaded
+     */
+    public OptionalInt listUsers(int first, int limit, Consumer<List<KeycloakUser>> pages)
+        throws KeycloakUserCreationException {
+        try (KeycloakClientRegistry.Lease lease = clientFor(realmName)) {
+            Keycloak client = lease.keycloak();
+            // Capped rather than overflowing for a position near the largest one a cursor can hold
+            int end = first + Math.min(Math.min(limit, listMaxLimit), Integer.MAX_VALUE - first);
+            int position = first;
+            while (position < end) {
+                int remaining = end - position;
+                // The last page asks for one more user, to tell whether there is a next page
+                int pageSize = remaining <= listPageSize ? remaining + 1 : listPageSize;
+                int offset = position;
+                List<UserRepresentation> page;
+                try {
+                    page = adminGateway.execute(realmName, "list-users",
+                        () -> client.realm(realmName).users().list(offset, pageSize));
+                } catch (ProcessingException | WebApplicationException e) {
+                    log.error("Error listing users in Keycloak", e);
+                    throw new KeycloakCommunicationException("Error listing users", e);
                 }
-                default -> {
-                    log.error("Error creating user: status code {}", statusCode);
-                    throw new KeycloakUserCreationException("Error creating user: status code " + statusCode);
+                List<KeycloakUser> users = page.stream().limit(remaining).map(KeycloakUser::of).toList();
+                users.forEach(user -> userCache.put(realmName, user.getUsername(), Optional.of(user)));
+                pages.accept(users);
+                if (page.size() < pageSize) {
+                    return OptionalInt.empty();
                 }
+                position += users.size();
             }
-        } catch (ProcessingException e) {
-            log.error("Error creating user in Keycloak", e);
-            throw new KeycloakCommunicationException("Error creating user", e);
+            // No position follows the largest one, and returning it again would have the client page forever
+            return position < Integer.MAX_VALUE ? OptionalInt.of(position) : OptionalInt.empty();
         }
     }
 
-    private CredentialRepresentation getCredential(String password) {
-        CredentialRepresentation credential = new CredentialRepresentation();
-        credential.setType(CredentialRepresentation.PASSWORD);
-        credential.setValue(password);
-        credential.setTemporary(false);
-        return credential;
+    /**
+     * Creates the specified users in Keycloak, running at most {@code keycloak.batch.concurrency} creations at once.
+     *
+     * <p>Each user is validated and created independently, so an invalid, duplicate or failed user does not stop
+     * the rest of the batch. With {@code keycloak.batch.partial-import.enabled}, the valid users are instead created
+     * in chunks through the {@link KeycloakPartialImporter}, running at most {@code keycloak.batch.concurrency} chunks
+     * at once.
+     *
+     * @param users the users to create
+     * @return the outcome for each user, in the same order as the given users
+     */
+    public List<KeycloakUserCreationResult> createUsers(List<KeycloakUserDto> users) {
+        return createUsersAsync(users).join();
+    }
+
+    /**
+     * Starts creating the specified users in Keycloak without waiting for them to be created.
+     *
+     * @param users the users to create
+     * @return a future that completes with the outcome for each user, in the same order as the given users
+     * @see #createUsers(List)
+     */
+    public CompletableFuture<List<KeycloakUserCreationResult>> createUsersAsync(List<KeycloakUserDto> users) {
+        KeycloakUserCreationResult[] results = new KeycloakUserCreationResult[users.size()];
+        if (partialImporter.isEnabled()) {
+            return importUsersAsync(users, results).thenApply(ignored -> Arrays.asList(results));
+        }
+        return runConcurrently(results.length, index -> results[index] = tryCreateUser(users.get(index)))
+            .thenApply(ignored -> Arrays.asList(results));
+    }
+
+    private CompletableFuture<Void> importUsersAsync(List<KeycloakUserDto> users, KeycloakUserCreationResult[] results) {
+        List<Integer> validUsers = new ArrayList<>(users.size());
+        for (int index = 0; index < users.size(); index++) {
+            Optional<KeycloakUserCreationResult> invalidUser = userValidator.validate(users.get(index));
+            if (invalidUser.isPresent()) {
+                results[index] = invalidUser.get();
+            } else {
+                validUsers.add(index);
+            }
+        }
+        int chunkSize = partialImporter.getChunkSize();
+        int chunks = (validUsers.size() + chunkSize - 1) / chunkSize;
+        return runConcurrently(chunks, chunk -> {
+            List<Integer> indexes =
+                validUsers.subList(chunk * chunkSize, Math.min((chunk + 1) * chunkSize, validUsers.size()));
+            List<KeycloakUserCreationResult> chunkResults =
+                partialImporter.importUsers(realmName, indexes.stream().map(users::get).toList());
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = chunkResults.get(i);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> runConcurrently(int tasks, IntConsumer task) {
+        AtomicInteger nextTask = new AtomicInteger();
+        CompletableFuture<?>[] workers = IntStream.range(0, Math.min(batchConcurrency, tasks))
+            .mapToObj(worker -> CompletableFuture.runAsync(() -> {
+                int index;
+                while ((index = nextTask.getAndIncrement()) < tasks) {
+                    task.accept(index);
+                }
+            }, applicationTaskExecutor))
+            .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(workers);
+    }
+
+    /**
+     * Maps the status code of a Keycloak user creation response to its outcome.
+     *
+     * @param statusCode the status code returned by Keycloak
+     * @param username the username of the new user
+     * @throws KeycloakUserCreationException if the status code is not 201
+     * @throws DuplicateKeycloakUserException if the status code is 409
+     */
+    void checkCreateStatus(int statusCode, String username) throws KeycloakUserCreationException {
+        switch (statusCode) {
+            case 201 -> log.debug("User {} successfully created in Keycloak", username);
+            case 409 -> {
+                logDuplicate(username);
+                throw new DuplicateKeycloakUserException(username);
+            }
+            default -> {
+                log.error("Error creating user: status code {}", statusCode);
+                throw new KeycloakUserCreationException("Error creating user: status code " + statusCode, statusCode);
+            }
+        }
+    }
+
+    /**
+     * Leases the admin client to manage the users of the specified realm with: the realm's own client from the
+     * {@link KeycloakClientRegistry}, or the default admin client for the configured {@code keycloak.realm}.
+     *
+     * @param realm the realm
+     * @return the lease of the realm's admin client, to be closed once the call is done
+     * @throws UnknownKeycloakRealmException if the realm is neither the configured one nor a listed tenant realm
+     */
+    private KeycloakClientRegistry.Lease clientFor(String realm) throws UnknownKeycloakRealmException {
+        Optional<KeycloakClientRegistry.Lease> realmClient = clientRegistry.lease(realm);
+        if (realmClient.isPresent()) {
+            return realmClient.get();
+        }
+        if (Objects.equals(realm, realmName)) {
+            return KeycloakClientRegistry.Lease.unmanaged(keycloak);
+        }
+        throw new UnknownKeycloakRealmException(realm);
+    }
+
+    private void createKeycloakUser(Keycloak client, String realm, UserRepresentation user)
+        throws KeycloakUserCreationException {
+        String username = user.getUsername();
+        long firstAttemptMillis = System.currentTimeMillis();
+        boolean tokenRefreshed = false;
+        boolean mayHaveCreated = false;
+        retryPolicy.onCall();
+        for (int attempt = 1; ; attempt++) {
+            int status;
+            try (Response response = adminGateway.execute(realm, "create-user",
+                () -> client.realm(realm).users().create(user))) {
+                status = response.getStatus();
+            } catch (KeycloakUnavailableException e) {
+                if (!mayHaveCreated) {
+                    throw e;
+                }
+                // The retry was not made, but an earlier attempt may still have created the user
+                throw new KeycloakUnavailableException(e.getMessage(), e, true);
+            } catch (ProcessingException e) {
+                if (KeycloakRetryPolicy.isConnectFailure(e) && retryPolicy.awaitRetry(realm, attempt, "connect")) {
+                    continue;
+                }
+                log.error("Error creating user in Keycloak", e);
+                throw new KeycloakCommunicationException("Error creating user", e);
+            }
+            if (KeycloakRetryPolicy.isRetryableStatus(status)
+                && retryPolicy.awaitRetry(realm, attempt, String.valueOf(status))) {
+                // A gateway error does not tell whether Keycloak went on to create the user
+                mayHaveCreated = true;
+                continue;
+            }
+            if (status == 401 && !tokenRefreshed && refreshToken(client)
+                && retryPolicy.awaitRetry(realm, attempt, "401")) {
+                tokenRefreshed = true;
+                continue;
+            }
+            if (status == 409 && mayHaveCreated && wasCreatedSince(client, realm, username, firstAttemptMillis)) {
+                log.debug("User {} was created by an earlier attempt", username);
+                status = 201;
+            }
+            if (status == 201 || status == 409) {
+                usernameIndex.add(realm, username);
+            }
+            checkCreateStatus(status, username);
+            return;
+        }
+    }
+
+    private boolean refreshToken(Keycloak client) {
+        try {
+            client.tokenManager().refreshToken();
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the Keycloak access token", e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns whether the specified user was created no earlier than the specified time, telling a 409 caused by an
+     * earlier attempt of the same creation from a genuine duplicate.
+     */
+    private boolean wasCreatedSince(Keycloak client, String realm, String username, long sinceMillis) {
+        try {
+            List<UserRepresentation> users = adminGateway.execute(realm, "search-user",
+                () -> client.realm(realm).users().search(username, true));
+            // Allow for the clocks of this instance and Keycloak being slightly apart
+            long earliestMillis = sinceMillis - CLOCK_SKEW.toMillis();
+            return users.stream()
+                .anyMatch(found -> found.getCreatedTimestamp() != null && found.getCreatedTimestamp() >= earliestMillis);
+        } catch (KeycloakUnavailableException | ProcessingException | WebApplicationException e) {
+            log.warn("Could not check whether user {} was created by an earlier attempt", username, e);
+            return false;
+        }
+    }
+
+    private void logDuplicate(String username) {
+        long suppressed = duplicateLog.tryAcquire();
+        if (suppressed >= 0) {
+            log.warn("Duplicate user {} ({} similar suppressed)", username, suppressed);
+        }
+    }
+
+    private void awaitInFlightCreation(CompletableFuture<Void> inFlight, String username)
+        throws KeycloakUserCreationException {
+        log.debug("Waiting for the creation of user {} already in flight", username);
+        try {
+            inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DuplicateKeycloakUserException) {
+                logDuplicate(username);
+                throw new DuplicateKeycloakUserException(username);
+            }
+            if (e.getCause() instanceof KeycloakUserCreationException cause) {
+                throw cause;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        logDuplicate(username);
+        throw new DuplicateKeycloakUserException(username);
+    }
+
+    /**
+     * Validates and creates the specified user in Keycloak, reporting any failure as the outcome instead of throwing.
+     *
+     * <p>The creation is observed as {@code keycloak.user.create} here rather than through {@code @Observed}, as the
+     * call to {@link #createUser(String, String)} from within this class does not go through the observing proxy.
+     *
+     * @param user the user to create
+     * @return the outcome of creating the user
+     */
+    KeycloakUserCreationResult tryCreateUser(KeycloakUserDto user) {
+        Optional<KeycloakUserCreationResult> invalidUser = userValidator.validate(user);
+        if (invalidUser.isPresent()) {
+            return invalidUser.get();
+        }
+        // Named and tagged as the @Observed methods are, so both end up in the same metrics
+        Observation observation = Observation.createNotStarted("keycloak.user.create", observationRegistry)
+            .contextualName("create-user")
+            .lowCardinalityKeyValue("class", KeycloakUserService.class.getName())
+            .lowCardinalityKeyValue("method", "createUser")
+            .start();
+        try (Observation.Scope ignored = observation.openScope()) {
+            createUser(user.getUsername(), user.getPassword());
+            return KeycloakUserCreationResult.created(user.getUsername());
+        } catch (DuplicateKeycloakUserException e) {
+            observation.error(e);
+            return KeycloakUserCreationResult.duplicate(user.getUsername());
+        } catch (KeycloakUserCreationException e) {
+            observation.error(e);
+            return KeycloakUserCreationResult.failed(user.getUsername(), e.getStatusCode(), e.getMessage());
+        } catch (RuntimeException e) {
+            observation.error(e);
+            log.error("Unexpected error creating user {}", user.getUsername(), e);
+            return KeycloakUserCreationResult.failed(user.getUsername(), null, "Error creating user");
+        } finally {
+            observation.stop();
+        }
     }
 }
@@ -0,0 +1,124 @@
+package uk.twl.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import uk.twl.config.KeycloakUsernameIndexProperties;
+import uk.twl.exception.KeycloakUnavailableException;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A bounded, time-expiring index of the usernames known to exist in Keycloak, so creations of those usernames can be
+ * rejected as duplicates without a round trip to Keycloak.
+ *
+ * <p>Usernames are added when Keycloak answers a creation with 201 or 409, and optionally from a paged scan of the
+ * realm's users at startup. Usernames the index does not know about are always sent to Keycloak, so the index only ever
+ * saves calls. A user deleted in Keycloak may still be reported as a duplicate until its entry expires. Hits and misses
+ * are published as the {@code cache.*} metrics of the {@code keycloak.username.index} cache.
+ */
+@Slf4j
+public class KeycloakUsernameIndex implements AutoCloseable {
+
+    private final Keycloak keycloak;
+
+    private final KeycloakAdminGateway adminGateway;
+
+    private final KeycloakUsernameIndexProperties properties;
+
+    private final Cache<String, Boolean> usernames;
+
+    private final ExecutorService warmUpExecutor;
+
+    public KeycloakUsernameIndex(Keycloak keycloak, KeycloakAdminGateway adminGateway,
+                                 KeycloakUsernameIndexProperties properties, MeterRegistry meterRegistry) {
+        this.keycloak = keycloak;
+        this.adminGateway = adminGateway;
+        this.properties = properties;
+        this.usernames = Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getExpireAfterWrite())
+            .recordStats()
+            .build();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("keycloak-username-index-");
+        threadFactory.setDaemon(true);
+        this.warmUpExecutor = Executors.newSingleThreadExecutor(threadFactory);
+        CaffeineCacheMetrics.monitor(meterRegistry, usernames, "keycloak.username.index");
+    }
+
+    /**
+     * Starts filling the index from the existing users of the specified realm in the background, if warm-up is
+     * enabled.
+     *
+     * @param realm the realm to scan
+     * @return a future that completes with the number of usernames added once the scan is over
+     */
+    public CompletableFuture<Integer> warmUp(String realm) {
+        if (!properties.isEnabled() || !properties.isWarmUp()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return CompletableFuture.supplyAsync(() -> scan(realm), warmUpExecutor);
+    }
+
+    /**
+     * Returns whether the specified username is known to exist in the specified realm.
+     *
+     * @param realm the realm
+     * @param username the username
+     * @return {@code true} if Keycloak confirmed the username exists and the entry has not expired
+     */
+    public boolean contains(String realm, String username) {
+        return properties.isEnabled() && usernames.getIfPresent(key(realm, username)) != null;
+    }
+
+    /**
+     * Records that Keycloak confirmed the specified username exists in the specified realm.
+     *
+     * @param realm the realm
+     * @param username the username
+     */
+    public void add(String realm, String username) {
+        if (properties.isEnabled()) {
+            usernames.put(key(realm, username), Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void close() {
+        warmUpExecutor.shutdownNow();
+    }
+
+    private int scan(String realm) {
+        int pageSize = properties.getPageSize();
+        int first = 0;
+        try {
+            List<UserRepresentation> page;
+            do {
+                int offset = first;
+                page = adminGateway.execute(realm, "list-users",
+                    () -> keycloak.realm(realm).users().list(offset, pageSize));
+                page.forEach(user -> add(realm, user.getUsername()));
+                first += page.size();
+            } while (page.size() == pageSize && first < properties.getMaximumSize()
+                && !Thread.currentThread().isInterrupted());
+            log.info("Username index of realm {} warmed up with {} users", realm, first);
+        } catch (KeycloakUnavailableException | RuntimeException e) {
+            log.warn("Username index of realm {} warm-up stopped after {} users", realm, first, e);
+        }
+        return first;
+    }
+
+    // Keycloak stores usernames in lower case, so differently cased creations of the same username are duplicates
+    private static String key(String realm, String username) {
+        return realm + '/' + username.toLowerCase(Locale.ROOT);
+    }
+}
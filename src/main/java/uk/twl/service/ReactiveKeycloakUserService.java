@@ -0,0 +1,134 @@
+package uk.twl.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.twl.exception.DuplicateKeycloakUserException;
+import uk.twl.exception.KeycloakCommunicationException;
+import uk.twl.exception.KeycloakUnavailableException;
+import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.logging.SampledLog;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import java.time.Duration;
+
+/**
+ * A non-blocking service for adding users to Keycloak, used instead of {@link KeycloakUserService} by the
+ * {@code reactive} profile.
+ *
+ * <p>Users are created through the Keycloak admin REST API with a non-blocking web client, and responses are mapped
+ * to the same exceptions as {@link KeycloakUserService}. The access token still comes from the admin client's token
+ * manager, which is normally kept fresh in the background, so fetching it rarely blocks.
+ *
+ * <p>The calls go through the {@link KeycloakAdminGateway} like those of {@link KeycloakUserService}, so they share its
+ * metrics, circuit breaker, bulkhead and realm limits, and fail with a {@link KeycloakUnavailableException} when it
+ * turns them away.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveKeycloakUserService {
+
+    private final WebClient keycloakWebClient;
+
+    private final Keycloak keycloak;
+
+    private final KeycloakUserDtoValidator userValidator;
+
+    private final KeycloakAdminGateway adminGateway;
+
+    private final SampledLog duplicateLog = new SampledLog(10, Duration.ofSeconds(10));
+
+    @Value("${keycloak.realm}")
+    private String realmName;
+
+    @Value("${keycloak.batch.concurrency}")
+    private int batchConcurrency;
+
+    /**
+     * Creates a new user with the specified username and password in Keycloak.
+     *
+     * @param username the username of the new user
+     * @param password the password of the new user
+     * @return a mono that completes once the user is created, or fails with a {@link KeycloakUserCreationException}
+     *     if the user creation fails, a {@link DuplicateKeycloakUserException} if a user with the same username already
+     *     exists in Keycloak, a {@link KeycloakCommunicationException} if there was a problem communicating with the
+     *     Keycloak server or getting an access token from it, or a {@link KeycloakUnavailableException} if Keycloak was
+     *     not called because it is failing or overloaded
+     */
+    public Mono<Void> createUser(String username, String password) {
+        return Mono.fromCallable(() -> keycloak.tokenManager().getAccessTokenString())
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(accessToken -> adminGateway.executeAsync(realmName, "create-user", () -> keycloakWebClient.post()
+                .uri("/admin/realms/{realm}/users", realmName)
+                .headers(headers -> headers.setBearerAuth(accessToken))
+                .bodyValue(KeycloakRepresentations.newUser(username, password))
+                .exchangeToMono(ClientResponse::toBodilessEntity)))
+            .flatMap(response -> handleResponse(response.getStatusCode().value(), username))
+            .onErrorMap(e -> e instanceof WebClientRequestException || e instanceof ProcessingException, e -> {
+                log.error("Error creating user in Keycloak", e);
+                return new KeycloakCommunicationException("Error creating user", e);
+            })
+            // Thrown by the token manager when the admin client cannot get an access token
+            .onErrorMap(WebApplicationException.class, e -> {
+                log.error("Error getting the Keycloak access token", e);
+                return new KeycloakCommunicationException("Error creating user", e);
+            });
+    }
+
+    /**
+     * Creates the specified users in Keycloak, running at most {@code keycloak.batch.concurrency} creations at once.
+     *
+     * @param users the users to create
+     * @return the outcome for each user, in the same order as the given users
+     */
+    public Flux<KeycloakUserCreationResult> createUsers(Flux<KeycloakUserDto> users) {
+        return users.flatMapSequential(this::createBatchUser, batchConcurrency);
+    }
+
+    private Mono<KeycloakUserCreationResult> createBatchUser(KeycloakUserDto user) {
+        return userValidator.validate(user)
+            .map(Mono::just)
+            .orElseGet(() -> createUser(user.getUsername(), user.getPassword())
+                .thenReturn(KeycloakUserCreationResult.created(user.getUsername()))
+                .onErrorResume(DuplicateKeycloakUserException.class,
+                    e -> Mono.just(KeycloakUserCreationResult.duplicate(user.getUsername())))
+                .onErrorResume(KeycloakUserCreationException.class,
+                    e -> Mono.just(KeycloakUserCreationResult.failed(user.getUsername(), e.getStatusCode(), e.getMessage())))
+                .onErrorResume(RuntimeException.class, e -> {
+                    log.error("Unexpected error creating user {}", user.getUsername(), e);
+                    return Mono.just(KeycloakUserCreationResult.failed(user.getUsername(), null, "Error creating user"));
+                }));
+    }
+
+    private Mono<Void> handleResponse(int statusCode, String username) {
+        return switch (statusCode) {
+            case 201 -> Mono.<Void>empty()
+                .doOnSuccess(ignored -> log.debug("User {} successfully created in Keycloak", username));
+            case 409 -> Mono.error(() -> {
+                long suppressed = duplicateLog.tryAcquire();
+                if (suppressed >= 0) {
+                    log.warn("Duplicate user {} ({} similar suppressed)", username, suppressed);
+                }
+                return new DuplicateKeycloakUserException(username);
+            });
+            default -> Mono.error(() -> {
+                log.error("Error creating user: status code {}", statusCode);
+                return new KeycloakUserCreationException("Error creating user: status code " + statusCode, statusCode);
+            });
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package uk.twl.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket that lets calls through at a steady rate while allowing short bursts.
+ *
+ * <p>The bucket holds up to {@code burst} permits and is refilled continuously at {@code permitsPerSecond}. A caller
+ * that finds the bucket empty reserves the next permit and is told how long to wait for it, so waiting callers are
+ * served in order without holding the bucket's lock while they wait.
+ */
+final class TokenBucket {
+
+    private final double permitsPerNano;
+
+    private final double capacity;
+
+    private final LongSupplier nanoClock;
+
+    private double permits;
+
+    private long lastRefillNanos;
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.nanoClock = nanoClock;
+        this.permits = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Reserves a permit if one is available within the specified time.
+     *
+     * @param maxWaitNanos the longest the caller is willing to wait for a permit
+     * @return the time to wait before the reserved permit may be used, or -1 if no permit was reserved because it
+     *         would not be available in time
+     */
+    synchronized long reserve(long maxWaitNanos) {
+        long now = nanoClock.getAsLong();
+        permits = Math.min(capacity, permits + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+        long waitNanos = permits >= 1 ? 0 : (long) Math.ceil((1 - permits) / permitsPerNano);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        permits -= 1;
+        return waitNanos;
+    }
+}
@@ -0,0 +1,50 @@
+package uk.twl.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import uk.twl.service.BalancingHttpClient;
+import uk.twl.service.KeycloakAdminGateway;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Keycloak Config Tests")
+class KeycloakConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withUserConfiguration(KeycloakConfig.class, ResilienceConfig.class)
+        .withBean(SimpleMeterRegistry.class)
+        .withBean(KeycloakAdminGateway.class)
+        .withPropertyValues(
+            "keycloak.auth-server-url=http://localhost:8080",
+            "keycloak.realm=master",
+            "keycloak.resource=test-app",
+            "keycloak.credentials.secret=secret",
+            "keycloak.credentials.grantType=client_credentials",
+            "keycloak.token.proactive-refresh=false");
+
+    @Test
+    @DisplayName("Should size the Keycloak connection pool from the keycloak.http properties")
+    void shouldSizeConnectionPoolFromProperties() {
+        contextRunner
+            .withPropertyValues("keycloak.http.pool-size=20", "keycloak.http.max-per-route=10")
+            .run(context -> {
+                assertThat(context).hasSingleBean(Keycloak.class);
+                PoolingHttpClientConnectionManager connectionManager = context.getBean(PoolingHttpClientConnectionManager.class);
+                assertThat(connectionManager.getMaxTotal()).isEqualTo(20);
+                assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(10);
+            });
+    }
+
+    @Test
+    @DisplayName("Should spread the Keycloak admin calls over the nodes listed in keycloak.nodes.urls")
+    void shouldBalanceOverConfiguredNodes() {
+        contextRunner
+            .withPropertyValues("keycloak.nodes.urls=http://keycloak-1:8080,http://keycloak-2:8080")
+            .run(context -> assertThat(context.getBean(CloseableHttpClient.class)).isInstanceOf(BalancingHttpClient.class));
+    }
+}
@@ -0,0 +1,49 @@
+package uk.twl.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import uk.twl.exception.DuplicateKeycloakUserException;
+import uk.twl.model.KeycloakUserDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("KeycloakRuntimeHints tests")
+class KeycloakRuntimeHintsTest {
+
+    private RuntimeHints hints;
+
+    @BeforeEach
+    void setUp() {
+        hints = new RuntimeHints();
+        new KeycloakRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    @DisplayName("should register the admin resource proxies of the Keycloak admin client")
+    void shouldRegisterAdminResourceProxies() {
+        // Then
+        assertThat(RuntimeHintsPredicates.proxies().forInterfaces(TypeReference.of(UsersResource.class),
+            TypeReference.of("org.jboss.resteasy.client.jaxrs.internal.proxy.ResteasyClientProxy"))).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(UsersResource.class)
+            .withMemberCategory(MemberCategory.INVOKE_PUBLIC_METHODS)).accepts(hints);
+    }
+
+    @Test
+    @DisplayName("should register the Jackson-mapped models and the RESTEasy service files")
+    void shouldRegisterModelsAndServiceFiles() {
+        // Then
+        assertThat(RuntimeHintsPredicates.reflection().onType(UserRepresentation.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(KeycloakUserDto.class)
+            .withMemberCategory(MemberCategory.DECLARED_FIELDS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(DuplicateKeycloakUserException.class)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("META-INF/services/javax.ws.rs.ext.Providers"))
+            .accepts(hints);
+    }
+}
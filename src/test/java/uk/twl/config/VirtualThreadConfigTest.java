@@ -0,0 +1,69 @@
+package uk.twl.config;
+
+import org.apache.catalina.connector.Connector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that {@code spring.threads.virtual.enabled} moves the request handling and the batch Keycloak calls to
+ * virtual threads. Skipped on Java versions without virtual threads; the throughput difference is measured with
+ * {@code ./gradlew loadTest -PloadTest.app.spring.threads.virtual.enabled=true}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "spring.threads.virtual.enabled=true")
+@EnabledIf(value = "uk.twl.config.VirtualThreadConfig#isSupported",
+    disabledReason = "Virtual threads require Java 21 or later")
+@DisplayName("Virtual thread configuration tests")
+class VirtualThreadConfigTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Test
+    @DisplayName("should handle requests on virtual threads")
+    void shouldHandleRequestsOnVirtualThreads() throws Exception {
+        // Given
+        Connector connector = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector();
+
+        // When
+        boolean virtual = runsOnVirtualThread(connector.getProtocolHandler().getExecutor());
+
+        // Then
+        assertThat(virtual).isTrue();
+    }
+
+    @Test
+    @DisplayName("should run the batch Keycloak calls on virtual threads")
+    void shouldRunBatchCallsOnVirtualThreads() throws Exception {
+        // When
+        boolean virtual = runsOnVirtualThread(applicationTaskExecutor);
+
+        // Then
+        assertThat(virtual).isTrue();
+    }
+
+    private static boolean runsOnVirtualThread(Executor executor) throws Exception {
+        CompletableFuture<Thread> thread = new CompletableFuture<>();
+        executor.execute(() -> thread.complete(Thread.currentThread()));
+        // Thread.isVirtual is called reflectively as the project compiles against Java 17
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -23,18 +23,30 @@ import org.springframework.test.web.servlet.MvcResult;
 import uk.twl.model.KeycloakUserDto;
 
 import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.CONFLICT;
 import static javax.ws.rs.core.Response.Status.CREATED;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 @ExtendWith(SpringExtension.class)
@@ -85,6 +97,152 @@ class KeycloakUserControllerIntegrationTest {
         assertThat(result.getResponse().getStatus()).isEqualTo(CREATED.getStatusCode());
     }
 
+    @Test
+    @DisplayName("Create user - idempotency key sent again - replays 201 without calling Keycloak, 422 for another user")
+    void createUserShouldReplayOutcomeOfIdempotencyKey() throws Exception {
+        // Given
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(CREATED).build());
+        String idempotencyKey = UUID.randomUUID().toString();
+        KeycloakUserDto otherUserDto = KeycloakUserDto.builder().username("otheruser").password("testpassword").build();
+
+        // When
+        MvcResult first = mockMvc.perform(post("/users")
+                .header(KeycloakUserController.IDEMPOTENCY_KEY, idempotencyKey)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDto)))
+            .andReturn();
+        MvcResult retry = mockMvc.perform(post("/users")
+                .header(KeycloakUserController.IDEMPOTENCY_KEY, idempotencyKey)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDto)))
+            .andReturn();
+        MvcResult reuse = mockMvc.perform(post("/users")
+                .header(KeycloakUserController.IDEMPOTENCY_KEY, idempotencyKey)
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(otherUserDto)))
+            .andReturn();
+
+        // Then
+        assertThat(first.getResponse().getStatus()).isEqualTo(CREATED.getStatusCode());
+        assertThat(retry.getResponse().getStatus()).isEqualTo(CREATED.getStatusCode());
+        assertThat(reuse.getResponse().getStatus()).isEqualTo(422);
+        verify(usersResource, times(1)).create(any(UserRepresentation.class));
+    }
+
+    @Test
+    @DisplayName("Create user async - valid user DTO provided - returns 202 with a job that completes")
+    void createUserAsyncShouldReturn202WithJob() throws Exception {
+        // Given
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(CREATED).build());
+
+        // When
+        MvcResult result = mockMvc.perform(post("/users/async")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDto)))
+            .andReturn();
+
+        // Then
+        assertThat(result.getResponse().getStatus()).isEqualTo(202);
+        String location = result.getResponse().getHeader("Location");
+        assertThat(location).contains("/users/jobs/" + objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText());
+        JsonNode job = objectMapper.readTree(mockMvc.perform(get(location)).andReturn().getResponse().getContentAsString());
+        for (int i = 0; i < 100 && !"DONE".equals(job.get("status").asText()); i++) {
+            Thread.sleep(50);
+            job = objectMapper.readTree(mockMvc.perform(get(location)).andReturn().getResponse().getContentAsString());
+        }
+        assertThat(job.get("result").get("outcome").asText()).isEqualTo("CREATED");
+    }
+
+    @Test
+    @DisplayName("Get job - unknown job ID - returns 404")
+    void getJobShouldReturn404WhenJobIsUnknown() throws Exception {
+        // When
+        MvcResult result = mockMvc.perform(get("/users/jobs/unknown")).andReturn();
+
+        // Then
+        assertThat(result.getResponse().getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Create realm user - configured realm - returns 201 and creates the user in that realm")
+    void createRealmUserShouldReturn201WhenUserIsCreated() throws Exception {
+        // Given
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(CREATED).build());
+
+        // When
+        MvcResult result = mockMvc.perform(post("/realms/master/users")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDto)))
+            .andReturn();
+
+        // Then
+        assertThat(result.getResponse().getStatus()).isEqualTo(CREATED.getStatusCode());
+        verify(keycloak).realm("master");
+    }
+
+    @Test
+    @DisplayName("Create realm user - realm neither configured nor listed - returns 404 without calling Keycloak")
+    void createRealmUserShouldReturn404WhenRealmIsUnknown() throws Exception {
+        // When
+        MvcResult result = mockMvc.perform(post("/realms/tenant-realm/users")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(userDto)))
+            .andReturn();
+
+        // Then
+        assertThat(result.getResponse().getStatus()).isEqualTo(NOT_FOUND.getStatusCode());
+        verify(keycloak, never()).realm("tenant-realm");
+    }
+
+    @Test
+    @DisplayName("Get user - existing and unknown usernames - returns 200 with the user, and 404")
+    void getUserShouldReturnUserOr404() throws Exception {
+        // Given
+        UserRepresentation existingUser = new UserRepresentation();
+        existingUser.setId("existing-id");
+        existingUser.setUsername("existinglookup");
+        given(usersResource.search("existinglookup", true)).willReturn(List.of(existingUser));
+        given(usersResource.search("unknownlookup", true)).willReturn(List.of());
+
+        // When
+        MvcResult found = mockMvc.perform(get("/users/existinglookup")).andReturn();
+        MvcResult notFound = mockMvc.perform(get("/users/unknownlookup")).andReturn();
+
+        // Then
+        assertThat(found.getResponse().getStatus()).isEqualTo(200);
+        assertThat(objectMapper.readTree(found.getResponse().getContentAsString()).get("id").asText())
+            .isEqualTo("existing-id");
+        assertThat(notFound.getResponse().getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("List users - more users than the limit - returns a page of users with the cursor of the next page")
+    void listUsersShouldReturnPageWithNextCursor() throws Exception {
+        // Given
+        given(usersResource.list(anyInt(), anyInt())).willAnswer(invocation -> {
+            int first = invocation.getArgument(0);
+            int max = invocation.getArgument(1);
+            return IntStream.range(first, first + max).mapToObj(i -> {
+                UserRepresentation user = new UserRepresentation();
+                user.setUsername("listed" + i);
+                return user;
+            }).toList();
+        });
+
+        // When
+        MvcResult firstPage = mockMvc.perform(get("/users").param("limit", "2")).andReturn();
+        String next = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("next").asText();
+        MvcResult secondPage = mockMvc.perform(get("/users").param("limit", "2").param("cursor", next)).andReturn();
+        MvcResult invalidCursor = mockMvc.perform(get("/users").param("cursor", "not-a-cursor")).andReturn();
+
+        // Then
+        assertThat(firstPage.getResponse().getStatus()).isEqualTo(200);
+        JsonNode users = objectMapper.readTree(secondPage.getResponse().getContentAsString()).get("users");
+        assertThat(users).hasSize(2);
+        assertThat(users.get(0).get("username").asText()).isEqualTo("listed2");
+        assertThat(invalidCursor.getResponse().getStatus()).isEqualTo(BAD_REQUEST.getStatusCode());
+    }
+
     @ParameterizedTest
     @NullAndEmptySource
     @DisplayName("Create user - username is empty/null - returns 400")
@@ -173,4 +331,56 @@ class KeycloakUserControllerIntegrationTest {
         // Then
         assertThat(result.getResponse().getStatus()).isEqualTo(INTERNAL_SERVER_ERROR.getStatusCode());
     }
+
+    @Test
+    @DisplayName("Create users - mixed batch provided - returns 200 with the outcome of each user")
+    void createUsersShouldReturnOutcomeOfEachUser() throws Exception {
+        // Given
+        KeycloakUserDto duplicateUserDto = KeycloakUserDto.builder()
+            .username("duplicateuser")
+            .password("testpassword")
+            .build();
+        given(usersResource.create(argThat(user -> user != null && "testuser".equals(user.getUsername()))))
+            .willReturn(Response.status(CREATED).build());
+        given(usersResource.create(argThat(user -> user != null && "duplicateuser".equals(user.getUsername()))))
+            .willReturn(Response.status(CONFLICT).build());
+
+        // When
+        MvcResult result = mockMvc.perform(post("/users/batch")
+                .contentType(APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(userDto, duplicateUserDto))))
+            .andReturn();
+
+        // Then
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        JsonNode jsonNode = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(jsonNode).hasSize(2);
+        assertThat(jsonNode.get(0).get("outcome").asText()).isEqualTo("CREATED");
+        assertThat(jsonNode.get(0).get("statusCode").asInt()).isEqualTo(CREATED.getStatusCode());
+        assertThat(jsonNode.get(1).get("outcome").asText()).isEqualTo("DUPLICATE");
+        assertThat(jsonNode.get(1).get("statusCode").asInt()).isEqualTo(CONFLICT.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Import users - NDJSON records provided - returns 200 and streams the outcome of each record")
+    void importUsersShouldStreamOutcomeOfEachRecord() throws Exception {
+        // Given
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(CREATED).build());
+        String records = objectMapper.writeValueAsString(userDto) + "\n" + "{\"username\": \"nopassword\"}\n";
+
+        // When
+        MvcResult result = mockMvc.perform(post("/users/import")
+                .contentType(APPLICATION_NDJSON)
+                .content(records))
+            .andReturn();
+
+        // Then
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getContentType()).isEqualTo(APPLICATION_NDJSON_VALUE);
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readTree(lines[0]).get("outcome").asText()).isEqualTo("CREATED");
+        assertThat(objectMapper.readTree(lines[1]).get("outcome").asText()).isEqualTo("FAILED");
+        assertThat(objectMapper.readTree(lines[1]).get("message").asText()).isEqualTo("Password is required");
+    }
 }
@@ -0,0 +1,204 @@
+package uk.twl.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import uk.twl.stub.StubKeycloakServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the scenarios of {@link KeycloakUserControllerIntegrationTest} against the native executable over HTTP, with a
+ * {@link StubKeycloakServer} in place of Keycloak. Run with {@code ./gradlew nativeIntegrationTest}, which builds the
+ * executable and passes its path as the {@code native.executable} system property.
+ */
+@Tag("native")
+@DisplayName("Keycloak User Controller Native Tests")
+class KeycloakUserControllerNativeTest {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static StubKeycloakServer keycloak;
+    private static Process application;
+    private static URI baseUri;
+    private static HttpClient httpClient;
+
+    @BeforeAll
+    static void startApplication() throws Exception {
+        String executable = System.getProperty("native.executable");
+        assumeTrue(executable != null, "native.executable is not set");
+        keycloak = new StubKeycloakServer().rejectDuplicates(true);
+        int port = freePort();
+        baseUri = URI.create("http://localhost:" + port);
+        httpClient = HttpClient.newHttpClient();
+        application = new ProcessBuilder(executable,
+            "--server.port=" + port,
+            "--keycloak.auth-server-url=" + keycloak.url(),
+            "--keycloak.retry.initial-backoff=1ms",
+            "--logging.level.root=warn")
+            .inheritIO()
+            .start();
+        awaitStartup();
+    }
+
+    @AfterAll
+    static void stopApplication() throws InterruptedException {
+        if (application != null) {
+            application.destroy();
+            application.waitFor(10, TimeUnit.SECONDS);
+        }
+        if (keycloak != null) {
+            keycloak.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        keycloak.reset();
+        keycloak.errorRate(0);
+    }
+
+    @Test
+    @DisplayName("Create user - valid user DTO provided - returns 201 and creates the user in Keycloak")
+    void createUserShouldReturn201() throws Exception {
+        // When
+        HttpResponse<String> response = post("/users", "{\"username\": \"testuser\", \"password\": \"testpassword\"}");
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(201);
+        assertThat(keycloak.createdUsernames()).containsExactly("testuser");
+    }
+
+    @Test
+    @DisplayName("Create user - username is empty - returns 400 with the validation error")
+    void createUserShouldReturn400WhenUsernameIsEmpty() throws Exception {
+        // When
+        HttpResponse<String> response = post("/users", "{\"username\": \"\", \"password\": \"testpassword\"}");
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(OBJECT_MAPPER.readTree(response.body()).get("username").asText()).isEqualTo("Username is required");
+        assertThat(keycloak.userRequests()).isZero();
+    }
+
+    @Test
+    @DisplayName("Create user - user DTO is null - returns 400")
+    void createUserShouldReturn400WhenBodyIsMissing() throws Exception {
+        // When
+        HttpResponse<String> response = post("/users", "");
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.body()).isEqualTo("Required request body is missing");
+    }
+
+    @Test
+    @DisplayName("Create user - duplicate user created - returns 409")
+    void createUserShouldReturn409WhenUserAlreadyExists() throws Exception {
+        // Given
+        post("/users", "{\"username\": \"existinguser\", \"password\": \"testpassword\"}");
+
+        // When
+        HttpResponse<String> response = post("/users", "{\"username\": \"existinguser\", \"password\": \"testpassword\"}");
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(409);
+    }
+
+    @Test
+    @DisplayName("Create user - Keycloak fails - returns 500")
+    void createUserShouldReturn500WhenKeycloakFails() throws Exception {
+        // Given
+        keycloak.errorStatus(500).errorRate(1);
+
+        // When
+        HttpResponse<String> response = post("/users", "{\"username\": \"faileduser\", \"password\": \"testpassword\"}");
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(500);
+    }
+
+    @Test
+    @DisplayName("Create users - mixed batch provided - returns 200 with the outcome of each user")
+    void createUsersShouldReturnOutcomeOfEachUser() throws Exception {
+        // When
+        HttpResponse<String> response = post("/users/batch", "[{\"username\": \"batchuser\", \"password\": \"testpassword\"},"
+            + "{\"username\": \"batchuser\", \"password\": \"testpassword\"}, {\"username\": \"nopassword\"}]");
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode results = OBJECT_MAPPER.readTree(response.body());
+        assertThat(results).hasSize(3);
+        assertThat(List.of(results.get(0).get("outcome").asText(), results.get(1).get("outcome").asText()))
+            .containsExactlyInAnyOrder("CREATED", "DUPLICATE");
+        assertThat(results.get(2).get("message").asText()).isEqualTo("Password is required");
+    }
+
+    @Test
+    @DisplayName("Import users - NDJSON records provided - returns 200 and streams the outcome of each record")
+    void importUsersShouldStreamOutcomeOfEachRecord() throws Exception {
+        // When
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(baseUri.resolve("/users/import"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                    "{\"username\": \"importuser\", \"password\": \"testpassword\"}\n{\"username\": \"nopassword\"}\n"))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        // Then
+        assertThat(response.statusCode()).isEqualTo(200);
+        String[] lines = response.body().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(OBJECT_MAPPER.readTree(lines[0]).get("outcome").asText()).isEqualTo("CREATED");
+        assertThat(OBJECT_MAPPER.readTree(lines[1]).get("outcome").asText()).isEqualTo("FAILED");
+    }
+
+    private static HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return httpClient.send(HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void awaitStartup() throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            assertThat(application.isAlive()).as("native executable is running").isTrue();
+            try {
+                if (httpClient.send(HttpRequest.newBuilder(baseUri).build(), HttpResponse.BodyHandlers.discarding())
+                    .statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException("Native executable did not start within " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -10,11 +10,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.twl.exception.DuplicateKeycloakUserException;
 import uk.twl.exception.KeycloakCommunicationException;
+import uk.twl.model.KeycloakUserCreationResult;
 import uk.twl.model.KeycloakUserDto;
 import uk.twl.service.KeycloakUserService;
 
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Mockito.doThrow;
 
@@ -44,7 +49,7 @@ class KeycloakUserControllerTest {
         willDoNothing().given(userService).createUser(user.getUsername(), user.getPassword());
 
         // When/Then
-        assertThatNoException().isThrownBy(() -> controller.createUser(user));
+        assertThatNoException().isThrownBy(() -> controller.createUser(user, null));
     }
 
     @Test
@@ -56,7 +61,7 @@ class KeycloakUserControllerTest {
             .when(userService).createUser(user.getUsername(), user.getPassword());
 
         // When/Then
-        assertThatThrownBy(() -> controller.createUser(user))
+        assertThatThrownBy(() -> controller.createUser(user, null))
             .isInstanceOf(DuplicateKeycloakUserException.class)
             .hasMessageContaining("Duplicate user: " + user.getUsername());
     }
@@ -70,8 +75,20 @@ class KeycloakUserControllerTest {
             .when(userService).createUser(user.getUsername(), user.getPassword());
 
         // When/Then
-        assertThatThrownBy(() -> controller.createUser(user))
+        assertThatThrownBy(() -> controller.createUser(user, null))
             .isInstanceOf(KeycloakCommunicationException.class)
             .hasMessageContaining("Test Error");
     }
+
+    @Test
+    @DisplayName("Create users - returns the outcome of each user")
+    void createUsersReturnsResults() {
+        // Given
+        List<KeycloakUserCreationResult> results = List.of(
+            KeycloakUserCreationResult.created(user.getUsername()));
+        given(userService.createUsers(List.of(user))).willReturn(results);
+
+        // When/Then
+        assertThat(controller.createUsers(List.of(user))).isEqualTo(results);
+    }
 }
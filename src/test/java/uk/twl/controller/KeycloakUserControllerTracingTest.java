@@ -0,0 +1,134 @@
+package uk.twl.controller;
+
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.twl.stub.StubKeycloakServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Traces {@code POST /users} through the real admin client against {@link StubKeycloakServer}, collecting the spans
+ * with an in-process exporter.
+ */
+@SpringBootTest(properties = "management.tracing.sampling.probability=1.0")
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@DisplayName("Keycloak User Controller Tracing Tests")
+class KeycloakUserControllerTracingTest {
+
+    private static final StubKeycloakServer KEYCLOAK = startKeycloak();
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InMemorySpanExporter spanExporter;
+
+    @Autowired
+    private SdkTracerProvider tracerProvider;
+
+    @TestConfiguration
+    static class SpanCollectorConfig {
+
+        @Bean
+        InMemorySpanExporter inMemorySpanExporter() {
+            return InMemorySpanExporter.create();
+        }
+    }
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", KEYCLOAK::url);
+    }
+
+    @BeforeEach
+    void setUp() {
+        KEYCLOAK.reset();
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+        spanExporter.reset();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        KEYCLOAK.close();
+    }
+
+    @Test
+    @DisplayName("Should trace a user creation from the request to the Keycloak call, continuing the caller's trace")
+    void shouldTraceUserCreation() throws Exception {
+        // When
+        mockMvc.perform(post("/users")
+                .contentType(APPLICATION_JSON)
+                .header("traceparent", "00-" + TRACE_ID + "-00f067aa0ba902b7-01")
+                .content("{\"username\": \"traced-user\", \"password\": \"testpassword\"}"))
+            .andExpect(status().isCreated());
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+
+        // Then
+        List<SpanData> spans = spanExporter.getFinishedSpanItems().stream()
+            .filter(span -> span.getTraceId().equals(TRACE_ID))
+            .toList();
+        assertThat(spans).extracting(SpanData::getName).contains("create-user-request", "create-user");
+        SpanData service = spans.stream().filter(span -> span.getName().equals("create-user")).findFirst().orElseThrow();
+        assertThat(spans).anySatisfy(span -> {
+            assertThat(span.getKind()).isEqualTo(SpanKind.CLIENT);
+            assertThat(span.getParentSpanId()).isEqualTo(service.getSpanId());
+        });
+        assertThat(KEYCLOAK.lastUserRequestHeader("traceparent")).contains(TRACE_ID);
+    }
+
+    @Test
+    @DisplayName("Should trace each user creation of a batch, although the batch does not go through @Observed")
+    void shouldTraceBatchUserCreations() throws Exception {
+        // When
+        mockMvc.perform(post("/users/batch")
+                .contentType(APPLICATION_JSON)
+                .content("""
+                    [{"username": "first-batch-user", "password": "testpassword"},
+                     {"username": "second-batch-user", "password": "testpassword"}]
+                    """))
+            .andExpect(status().isOk());
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+
+        // Then
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        List<SpanData> creations = spans.stream().filter(span -> span.getName().equals("create-user")).toList();
+        assertThat(creations).hasSize(2).allSatisfy(creation -> assertThat(spans).anySatisfy(span -> {
+            assertThat(span.getKind()).isEqualTo(SpanKind.CLIENT);
+            assertThat(span.getParentSpanId()).isEqualTo(creation.getSpanId());
+        }));
+    }
+
+    private static StubKeycloakServer startKeycloak() {
+        try {
+            return new StubKeycloakServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package uk.twl.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.twl.logging.CorrelationIdFilter.CORRELATION_ID;
+import static uk.twl.logging.CorrelationIdFilter.CORRELATION_ID_HEADER;
+
+@DisplayName("Correlation ID Filter Tests")
+class CorrelationIdFilterTest {
+
+    private final CorrelationIdFilter filter = new CorrelationIdFilter();
+
+    @Test
+    @DisplayName("Should log the request with the correlation ID sent by the client")
+    void shouldUseClientCorrelationId() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users");
+        request.addHeader(CORRELATION_ID_HEADER, "client-id-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> loggedId = new AtomicReference<>();
+
+        // When
+        filter.doFilter(request, response, (req, res) -> loggedId.set(MDC.get(CORRELATION_ID)));
+
+        // Then
+        assertThat(loggedId).hasValue("client-id-1");
+        assertThat(response.getHeader(CORRELATION_ID_HEADER)).isEqualTo("client-id-1");
+        assertThat(MDC.get(CORRELATION_ID)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should generate a correlation ID when the client sent none or an unsafe one")
+    void shouldGenerateCorrelationId() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users");
+        request.addHeader(CORRELATION_ID_HEADER, "forged\nlog line");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> loggedId = new AtomicReference<>();
+
+        // When
+        filter.doFilter(request, response, (req, res) -> loggedId.set(MDC.get(CORRELATION_ID)));
+
+        // Then
+        assertThat(loggedId.get()).isNotBlank().doesNotContain("forged");
+        assertThat(response.getHeader(CORRELATION_ID_HEADER)).isEqualTo(loggedId.get());
+    }
+}
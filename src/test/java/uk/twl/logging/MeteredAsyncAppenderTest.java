@@ -0,0 +1,64 @@
+package uk.twl.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Metered Async Appender Tests")
+class MeteredAsyncAppenderTest {
+
+    @Test
+    @DisplayName("Should count every event dropped by concurrent appends to a full queue")
+    void shouldCountEveryDroppedEvent() throws InterruptedException {
+        // Given
+        LoggerContext context = new LoggerContext();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        AppenderBase<ILoggingEvent> slowAppender = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.incrementAndGet();
+            }
+        };
+        slowAppender.setContext(context);
+        slowAppender.start();
+        MeteredAsyncAppender appender = new MeteredAsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(4);
+        appender.addAppender(slowAppender);
+        appender.start();
+        int events = 2_000;
+
+        // When
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < events; i++) {
+            threads.execute(() -> appender.doAppend(new LoggingEvent(getClass().getName(),
+                context.getLogger("test"), Level.INFO, "event", null, null)));
+        }
+        threads.shutdown();
+        assertThat(threads.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        appender.stop();
+
+        // Then
+        assertThat(appender.getDroppedEvents()).isPositive();
+        assertThat(delivered.get() + appender.getDroppedEvents()).isEqualTo(events);
+    }
+}
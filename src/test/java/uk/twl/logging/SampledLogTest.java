@@ -0,0 +1,43 @@
+package uk.twl.logging;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Sampled Log Tests")
+class SampledLogTest {
+
+    @Test
+    @DisplayName("Should suppress occurrences beyond the permits of the interval")
+    void shouldSuppressOccurrencesBeyondPermits() {
+        // Given
+        SampledLog sampledLog = new SampledLog(2, Duration.ofHours(1));
+
+        // When / Then
+        assertThat(sampledLog.tryAcquire()).isZero();
+        assertThat(sampledLog.tryAcquire()).isZero();
+        assertThat(sampledLog.tryAcquire()).isEqualTo(-1);
+        assertThat(sampledLog.tryAcquire()).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Should report the suppressed occurrences with the first one logged in the next interval")
+    void shouldReportSuppressedOccurrences() throws InterruptedException {
+        // Given
+        SampledLog sampledLog = new SampledLog(1, Duration.ofMillis(20));
+        sampledLog.tryAcquire();
+        sampledLog.tryAcquire();
+        sampledLog.tryAcquire();
+
+        // When
+        Thread.sleep(30);
+        long suppressed = sampledLog.tryAcquire();
+
+        // Then
+        assertThat(suppressed).isEqualTo(2);
+        assertThat(sampledLog.tryAcquire()).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,46 @@
+package uk.twl.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AimdConcurrencyLimit tests")
+class AimdConcurrencyLimitTest {
+
+    private static final long THRESHOLD_NANOS = 1_000;
+
+    @Test
+    @DisplayName("should back off once for a burst of concurrent slow calls")
+    void shouldBackOffOnceForConcurrentSlowCalls() {
+        // Given
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(20, 2, 50, 0.5, THRESHOLD_NANOS);
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            limit.release(0, 10_000 + i, false);
+        }
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("should back off again for slow calls started after the last decrease")
+    void shouldBackOffAgainForLaterSlowCalls() {
+        // Given
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(20, 2, 50, 0.5, THRESHOLD_NANOS);
+        limit.tryAcquire();
+        limit.release(0, 10_000, true);
+
+        // When
+        limit.tryAcquire();
+        limit.release(10_000, 20_000, true);
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+}
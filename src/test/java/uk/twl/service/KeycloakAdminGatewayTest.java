@@ -0,0 +1,224 @@
+package uk.twl.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import uk.twl.config.KeycloakLimitProperties;
+import uk.twl.exception.KeycloakUnavailableException;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("KeycloakAdminGateway tests")
+class KeycloakAdminGatewayTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private KeycloakLimitProperties limitProperties;
+    private KeycloakAdminGateway adminGateway;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .waitDurationInOpenState(Duration.ofMinutes(1))
+            .recordResult(result -> result instanceof Response response && response.getStatus() >= 500)
+            .build());
+        bulkhead = Bulkhead.of("test", BulkheadConfig.custom().maxConcurrentCalls(1).build());
+        limitProperties = new KeycloakLimitProperties();
+        adminGateway = new KeycloakAdminGateway(meterRegistry, circuitBreaker, bulkhead, limitProperties);
+    }
+
+    @Test
+    @DisplayName("should time calls tagged with the realm, operation and response status")
+    void shouldTimeCallsByResponseStatus() throws KeycloakUnavailableException {
+        // When
+        adminGateway.execute("test-realm", "create-user", () -> Response.status(201).build());
+        adminGateway.execute("test-realm", "create-user", () -> Response.status(409).build());
+
+        // Then
+        assertThat(meterRegistry.get("keycloak.admin.requests")
+            .tags("realm", "test-realm", "operation", "create-user", "outcome", "201").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("keycloak.admin.requests")
+            .tags("realm", "test-realm", "operation", "create-user", "outcome", "409").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should time failed calls tagged with the exception type")
+    void shouldTimeFailedCalls() {
+        // When/Then
+        assertThatThrownBy(() -> adminGateway.execute("test-realm", "create-user", () -> {
+            throw new ProcessingException("test error");
+        })).isInstanceOf(ProcessingException.class);
+        assertThat(meterRegistry.get("keycloak.admin.requests")
+            .tag("outcome", "ProcessingException").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should track calls while they are in flight")
+    void shouldTrackCallsInFlight() throws KeycloakUnavailableException {
+        // When
+        int active = adminGateway.execute("test-realm", "create-user", () -> meterRegistry
+            .get("keycloak.admin.requests.active").longTaskTimer().activeTasks());
+
+        // Then
+        assertThat(active).isEqualTo(1);
+        assertThat(meterRegistry.get("keycloak.admin.requests.active").longTaskTimer().activeTasks()).isZero();
+    }
+
+    @Test
+    @DisplayName("should stop calling Keycloak once too many calls answer with a server error")
+    void shouldFailFastWhenCircuitIsOpen() throws KeycloakUnavailableException {
+        // Given
+        for (int i = 0; i < 4; i++) {
+            adminGateway.execute("test-realm", "create-user", () -> Response.status(503).build());
+        }
+
+        // When/Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> adminGateway.execute("test-realm", "create-user", () -> {
+            throw new AssertionError("Keycloak should not be called");
+        })).isInstanceOf(KeycloakUnavailableException.class);
+        assertThat(meterRegistry.get("keycloak.admin.requests.rejected")
+            .tag("reason", "circuit-open").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should keep calling Keycloak when it answers with client errors such as 409")
+    void shouldNotCountClientErrorsAsFailures() throws KeycloakUnavailableException {
+        // When
+        for (int i = 0; i < 8; i++) {
+            adminGateway.execute("test-realm", "create-user", () -> Response.status(409).build());
+        }
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    @DisplayName("should reject calls beyond the bulkhead's concurrency without calling Keycloak")
+    void shouldRejectCallsWhenBulkheadIsFull() throws KeycloakUnavailableException {
+        // When/Then
+        adminGateway.execute("test-realm", "create-user", () -> {
+            assertThatThrownBy(() -> adminGateway.execute("test-realm", "create-user", () -> {
+                throw new AssertionError("Keycloak should not be called");
+            })).isInstanceOf(KeycloakUnavailableException.class);
+            return Response.status(201).build();
+        });
+        assertThat(meterRegistry.get("keycloak.admin.requests.rejected")
+            .tag("reason", "bulkhead-full").counter().count()).isEqualTo(1);
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should reject calls beyond the realm's rate limit without calling Keycloak")
+    void shouldRejectCallsBeyondRateLimit() throws KeycloakUnavailableException {
+        // Given
+        KeycloakLimitProperties.Limit limit = new KeycloakLimitProperties.Limit();
+        limit.setRate(1);
+        limit.setBurst(1);
+        limit.setMaxWait(Duration.ZERO);
+        limitProperties.getRealms().put("limited-realm", limit);
+        adminGateway.execute("limited-realm", "create-user", () -> Response.status(201).build());
+
+        // When/Then
+        assertThatThrownBy(() -> adminGateway.execute("limited-realm", "create-user", () -> {
+            throw new AssertionError("Keycloak should not be called");
+        })).isInstanceOf(KeycloakUnavailableException.class);
+        adminGateway.execute("test-realm", "create-user", () -> Response.status(201).build());
+        assertThat(meterRegistry.get("keycloak.admin.requests.rejected")
+            .tags("realm", "limited-realm", "reason", "rate-limit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should lower the realm's concurrency limit when Keycloak answers with server errors")
+    void shouldLowerConcurrencyLimitOnServerErrors() throws KeycloakUnavailableException {
+        // When
+        adminGateway.execute("test-realm", "create-user", () -> Response.status(201).build());
+        double initialLimit = meterRegistry.get("keycloak.admin.concurrency.limit").tag("realm", "test-realm").gauge().value();
+        adminGateway.execute("test-realm", "create-user", () -> Response.status(503).build());
+
+        // Then
+        assertThat(meterRegistry.get("keycloak.admin.concurrency.limit").tag("realm", "test-realm").gauge().value())
+            .isLessThan(initialLimit);
+    }
+
+    @Test
+    @DisplayName("should drop the concurrency limit gauge of a removed realm")
+    void shouldRemoveRealmLimit() throws KeycloakUnavailableException {
+        // Given
+        adminGateway.execute("test-realm", "create-user", () -> Response.status(201).build());
+
+        // When
+        adminGateway.removeRealm("test-realm");
+
+        // Then
+        assertThat(meterRegistry.find("keycloak.admin.concurrency.limit").tag("realm", "test-realm").gauge()).isNull();
+    }
+
+    @Test
+    @DisplayName("should time non-blocking calls tagged with the response status")
+    void shouldTimeAsyncCallsByResponseStatus() {
+        // When
+        StepVerifier.create(adminGateway.executeAsync("test-realm", "create-user",
+                () -> Mono.just(ResponseEntity.status(201).build())))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        // Then
+        assertThat(meterRegistry.get("keycloak.admin.requests")
+            .tags("realm", "test-realm", "operation", "create-user", "outcome", "201").timer().count()).isEqualTo(1);
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should reject non-blocking calls beyond the bulkhead's concurrency without calling Keycloak")
+    void shouldRejectAsyncCallsWhenBulkheadIsFull() {
+        // Given
+        Sinks.One<ResponseEntity<Void>> inFlight = Sinks.one();
+        StepVerifier.FirstStep<ResponseEntity<Void>> first =
+            StepVerifier.create(adminGateway.executeAsync("test-realm", "create-user", inFlight::asMono));
+
+        // When/Then
+        first.then(() -> StepVerifier.create(adminGateway.executeAsync("test-realm", "create-user",
+                    () -> Mono.error(new AssertionError("Keycloak should not be called"))))
+                .expectError(KeycloakUnavailableException.class)
+                .verify())
+            .then(() -> inFlight.tryEmitValue(ResponseEntity.status(201).build()))
+            .expectNextCount(1)
+            .verifyComplete();
+        assertThat(meterRegistry.get("keycloak.admin.requests.rejected")
+            .tag("reason", "bulkhead-full").counter().count()).isEqualTo(1);
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should give the permits of a cancelled non-blocking call back")
+    void shouldReleaseCancelledAsyncCall() {
+        // When
+        StepVerifier.create(adminGateway.executeAsync("test-realm", "create-user", Mono::never))
+            .thenCancel()
+            .verify();
+
+        // Then
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+        assertThat(meterRegistry.get("keycloak.admin.requests").tag("outcome", "cancelled").timer().count())
+            .isEqualTo(1);
+    }
+}
@@ -0,0 +1,134 @@
+package uk.twl.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import uk.twl.config.KeycloakLimitProperties;
+import uk.twl.config.KeycloakNodeProperties;
+import uk.twl.config.KeycloakTenantProperties;
+import uk.twl.config.KeycloakTokenProperties;
+import uk.twl.exception.KeycloakUnavailableException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("KeycloakClientRegistry tests")
+class KeycloakClientRegistryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private KeycloakAdminGateway adminGateway;
+    private KeycloakClientRegistry clientRegistry;
+
+    @BeforeEach
+    void setUp() {
+        KeycloakTenantProperties.Credentials credentials = new KeycloakTenantProperties.Credentials();
+        credentials.setClientId("user-admin");
+        credentials.setClientSecret("secret");
+        KeycloakTenantProperties tenantProperties = new KeycloakTenantProperties();
+        tenantProperties.getRealms().put("tenant", credentials);
+        meterRegistry = new SimpleMeterRegistry();
+        adminGateway = new KeycloakAdminGateway(meterRegistry, CircuitBreaker.ofDefaults("test"),
+            Bulkhead.ofDefaults("test"), new KeycloakLimitProperties());
+        clientRegistry = new KeycloakClientRegistry("http://localhost:8080", tenantProperties,
+            new KeycloakTokenProperties(), new KeycloakNodeBalancer(new KeycloakNodeProperties(), meterRegistry),
+            adminGateway, meterRegistry, ObservationRegistry.NOOP);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clientRegistry.close();
+    }
+
+    @Test
+    @DisplayName("should reuse the admin client of a listed realm, with its own connection pool")
+    void shouldReuseRealmClient() {
+        // When
+        Keycloak first;
+        Keycloak second;
+        try (KeycloakClientRegistry.Lease firstLease = clientRegistry.lease("tenant").orElseThrow();
+             KeycloakClientRegistry.Lease secondLease = clientRegistry.lease("tenant").orElseThrow()) {
+            first = firstLease.keycloak();
+            second = secondLease.keycloak();
+        }
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(meterRegistry.find("httpcomponents.httpclient.pool.total.max").tag("httpclient", "keycloak-tenant")
+            .gauge()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("should not open an admin client for a realm that is not listed")
+    void shouldNotOpenClientForUnlistedRealm() {
+        // When/Then
+        assertThat(clientRegistry.lease("other")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should close the realm clients and remove their pool metrics when closed")
+    void shouldCloseRealmClients() {
+        // Given
+        clientRegistry.lease("tenant").orElseThrow().close();
+
+        // When
+        clientRegistry.close();
+
+        // Then
+        assertThat(meterRegistry.find("httpcomponents.httpclient.pool.total.max").tag("httpclient", "keycloak-tenant")
+            .gauge()).isNull();
+    }
+
+    @Test
+    @DisplayName("should drop the concurrency limit of a realm when its client is closed")
+    void shouldRemoveRealmLimitWhenClosed() throws KeycloakUnavailableException {
+        // Given
+        clientRegistry.lease("tenant").orElseThrow().close();
+        adminGateway.execute("tenant", "create-user", () -> "created");
+
+        // When
+        clientRegistry.close();
+
+        // Then
+        assertThat(meterRegistry.find("keycloak.admin.concurrency.limit").tag("realm", "tenant").gauge()).isNull();
+    }
+
+    @Test
+    @DisplayName("should keep an evicted realm client open until its lease is closed")
+    void shouldKeepLeasedClientOpenUntilReleased() {
+        // Given
+        KeycloakClientRegistry.Lease lease = clientRegistry.lease("tenant").orElseThrow();
+
+        // When
+        clientRegistry.close();
+
+        // Then
+        assertThat(lease.keycloak().isClosed()).isFalse();
+        lease.close();
+        assertThat(lease.keycloak().isClosed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should open a new client for a realm whose client was evicted")
+    void shouldReopenEvictedClient() {
+        // Given
+        Keycloak evicted;
+        try (KeycloakClientRegistry.Lease lease = clientRegistry.lease("tenant").orElseThrow()) {
+            evicted = lease.keycloak();
+        }
+        clientRegistry.close();
+
+        // When
+        try (KeycloakClientRegistry.Lease lease = clientRegistry.lease("tenant").orElseThrow()) {
+
+            // Then
+            assertThat(lease.keycloak()).isNotSameAs(evicted);
+            assertThat(lease.keycloak().isClosed()).isFalse();
+            assertThat(evicted.isClosed()).isTrue();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package uk.twl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import uk.twl.config.KeycloakNodeProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("KeycloakNodeBalancer tests")
+class KeycloakNodeBalancerTest {
+
+    private final AtomicLong nanoClock = new AtomicLong();
+    private KeycloakNodeBalancer balancer;
+
+    @BeforeEach
+    void setUp() {
+        KeycloakNodeProperties properties = new KeycloakNodeProperties();
+        properties.setUrls(List.of("http://keycloak-1:8080", "http://keycloak-2:8080"));
+        properties.setFailureThreshold(2);
+        properties.setEjectionDuration(Duration.ofSeconds(30));
+        balancer = new KeycloakNodeBalancer(properties, new SimpleMeterRegistry(), nanoClock::get);
+    }
+
+    @Test
+    @DisplayName("should send calls to the node with fewer calls outstanding")
+    void shouldPreferLessBusyNode() {
+        // Given
+        KeycloakNodeBalancer.Node busy = balancer.acquire();
+
+        // When
+        List<KeycloakNodeBalancer.Node> chosen = IntStream.range(0, 10).mapToObj(i -> {
+            KeycloakNodeBalancer.Node node = balancer.acquire();
+            balancer.release(node, false);
+            return node;
+        }).toList();
+
+        // Then
+        assertThat(chosen).doesNotContain(busy);
+    }
+
+    @Test
+    @DisplayName("should eject a node after consecutive failures and send it calls again once the ejection is over")
+    void shouldEjectFailingNode() {
+        // Given
+        KeycloakNodeBalancer.Node failing = balancer.acquire();
+        balancer.release(failing, true);
+        balancer.release(acquire(failing), true);
+
+        // When
+        List<KeycloakNodeBalancer.Node> duringEjection = IntStream.range(0, 10).mapToObj(i -> {
+            KeycloakNodeBalancer.Node node = balancer.acquire();
+            balancer.release(node, false);
+            return node;
+        }).toList();
+        nanoClock.addAndGet(Duration.ofSeconds(31).toNanos());
+        KeycloakNodeBalancer.Node busy = balancer.acquire();
+        KeycloakNodeBalancer.Node afterEjection = balancer.acquire();
+
+        // Then
+        assertThat(duringEjection).doesNotContain(failing);
+        assertThat(List.of(busy, afterEjection)).contains(failing);
+    }
+
+    private KeycloakNodeBalancer.Node acquire(KeycloakNodeBalancer.Node wanted) {
+        KeycloakNodeBalancer.Node node = balancer.acquire();
+        while (node != wanted) {
+            balancer.release(node, false);
+            node = balancer.acquire();
+        }
+        return node;
+    }
+}
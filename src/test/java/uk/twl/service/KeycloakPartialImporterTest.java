@@ -0,0 +1,168 @@
+package uk.twl.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.twl.config.KeycloakLimitProperties;
+import uk.twl.config.KeycloakPartialImportProperties;
+import uk.twl.config.KeycloakRetryProperties;
+import uk.twl.config.KeycloakUserCacheProperties;
+import uk.twl.config.KeycloakUsernameIndexProperties;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+import uk.twl.service.KeycloakPartialImporter.PartialImportResult;
+import uk.twl.service.KeycloakPartialImporter.PartialImportResults;
+
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("KeycloakPartialImporter tests")
+@ExtendWith(MockitoExtension.class)
+class KeycloakPartialImporterTest {
+
+    @Mock
+    private Keycloak keycloak;
+    @Mock
+    private RealmResource realmResource;
+    @Mock
+    private KeycloakClientRegistry clientRegistry;
+    private KeycloakUsernameIndex usernameIndex;
+    private KeycloakPartialImporter partialImporter;
+
+    @BeforeEach
+    void setUp() {
+        KeycloakUsernameIndexProperties indexProperties = new KeycloakUsernameIndexProperties();
+        indexProperties.setEnabled(true);
+        indexProperties.setWarmUp(false);
+        usernameIndex = new KeycloakUsernameIndex(null, null, indexProperties, new SimpleMeterRegistry());
+        KeycloakAdminGateway adminGateway = new KeycloakAdminGateway(new SimpleMeterRegistry(),
+            CircuitBreaker.ofDefaults("test"), Bulkhead.ofDefaults("test"), new KeycloakLimitProperties());
+        KeycloakRetryPolicy retryPolicy = new KeycloakRetryPolicy(new KeycloakRetryProperties(), new SimpleMeterRegistry());
+        KeycloakUserCache userCache = new KeycloakUserCache(new KeycloakUserCacheProperties(), new SimpleMeterRegistry());
+        partialImporter = new KeycloakPartialImporter(keycloak, adminGateway, clientRegistry, retryPolicy,
+            usernameIndex, userCache, new KeycloakPartialImportProperties());
+    }
+
+    @Test
+    @DisplayName("should send the users in a single request and map each user's result to its outcome")
+    void shouldMapResultOfEachUser() {
+        // Given
+        PartialImportResults results = new PartialImportResults(1, 1, 0, List.of(
+            new PartialImportResult("ADDED", "USER", "newuser"),
+            new PartialImportResult("SKIPPED", "USER", "existinguser")), null);
+        Response response = mock(Response.class);
+        given(response.getStatus()).willReturn(200);
+        given(response.readEntity(PartialImportResults.class)).willReturn(results);
+        givenPartialImportResponse(response);
+        List<KeycloakUserDto> users = List.of(newUser("NewUser"), newUser("existinguser"), newUser("missinguser"));
+
+        // When
+        List<KeycloakUserCreationResult> outcomes = partialImporter.importUsers("test-realm", users);
+
+        // Then
+        assertThat(outcomes).extracting(KeycloakUserCreationResult::getOutcome).containsExactly(
+            KeycloakUserCreationResult.Outcome.CREATED,
+            KeycloakUserCreationResult.Outcome.DUPLICATE,
+            KeycloakUserCreationResult.Outcome.FAILED);
+        ArgumentCaptor<PartialImportRepresentation> request = ArgumentCaptor.forClass(PartialImportRepresentation.class);
+        verify(realmResource).partialImport(request.capture());
+        assertThat(request.getValue().getIfResourceExists()).isEqualTo("SKIP");
+        assertThat(request.getValue().getUsers()).extracting(UserRepresentation::getUsername)
+            .containsExactly("NewUser", "existinguser", "missinguser");
+        assertThat(usernameIndex.contains("test-realm", "newuser")).isTrue();
+    }
+
+    @Test
+    @DisplayName("should report every user of the chunk as failed when the partial import fails")
+    void shouldFailWholeChunkWhenImportFails() {
+        // Given
+        givenPartialImportResponse(Response.status(500).build());
+
+        // When
+        List<KeycloakUserCreationResult> outcomes =
+            partialImporter.importUsers("test-realm", List.of(newUser("first"), newUser("second")));
+
+        // Then
+        assertThat(outcomes).allSatisfy(outcome -> {
+            assertThat(outcome.getOutcome()).isEqualTo(KeycloakUserCreationResult.Outcome.FAILED);
+            assertThat(outcome.getStatusCode()).isEqualTo(500);
+        });
+    }
+
+    @Test
+    @DisplayName("should import only the first of the usernames that differ in case and report the others as duplicates")
+    void shouldReportRepeatedUsernameAsDuplicate() {
+        // Given
+        PartialImportResults results = new PartialImportResults(2, 0, 0, List.of(
+            new PartialImportResult("ADDED", "USER", "newuser"),
+            new PartialImportResult("ADDED", "USER", "otheruser")), null);
+        Response response = mock(Response.class);
+        given(response.getStatus()).willReturn(200);
+        given(response.readEntity(PartialImportResults.class)).willReturn(results);
+        givenPartialImportResponse(response);
+        List<KeycloakUserDto> users = List.of(newUser("NewUser"), newUser("newuser"), newUser("otheruser"));
+
+        // When
+        List<KeycloakUserCreationResult> outcomes = partialImporter.importUsers("test-realm", users);
+
+        // Then
+        assertThat(outcomes).extracting(KeycloakUserCreationResult::getUsername)
+            .containsExactly("NewUser", "newuser", "otheruser");
+        assertThat(outcomes).extracting(KeycloakUserCreationResult::getOutcome).containsExactly(
+            KeycloakUserCreationResult.Outcome.CREATED,
+            KeycloakUserCreationResult.Outcome.DUPLICATE,
+            KeycloakUserCreationResult.Outcome.CREATED);
+        ArgumentCaptor<PartialImportRepresentation> request = ArgumentCaptor.forClass(PartialImportRepresentation.class);
+        verify(realmResource).partialImport(request.capture());
+        assertThat(request.getValue().getUsers()).extracting(UserRepresentation::getUsername)
+            .containsExactly("NewUser", "otheruser");
+    }
+
+    @Test
+    @DisplayName("should read the partial import results Keycloak answers with")
+    void shouldReadPartialImportResults() throws JsonProcessingException {
+        // Given
+        String body = """
+            {"overwritten":0,"added":1,"skipped":0,"results":[
+              {"action":"ADDED","resourceType":"USER","resourceName":"newuser","id":"new-id"}]}
+            """;
+
+        // When
+        PartialImportResults results = new ObjectMapper().readValue(body, PartialImportResults.class);
+
+        // Then
+        assertThat(results.added()).isEqualTo(1);
+        assertThat(results.errorMessage()).isNull();
+        assertThat(results.results()).containsExactly(new PartialImportResult("ADDED", "USER", "newuser"));
+    }
+
+    private void givenPartialImportResponse(Response response) {
+        given(clientRegistry.lease("test-realm")).willReturn(Optional.empty());
+        given(keycloak.realm("test-realm")).willReturn(realmResource);
+        given(realmResource.partialImport(any(PartialImportRepresentation.class))).willReturn(response);
+    }
+
+    private static KeycloakUserDto newUser(String username) {
+        return KeycloakUserDto.builder().username(username).password("test-password").build();
+    }
+}
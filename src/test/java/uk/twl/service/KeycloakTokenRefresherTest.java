@@ -0,0 +1,89 @@
+package uk.twl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.token.TokenManager;
+import org.keycloak.representations.AccessTokenResponse;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.twl.config.KeycloakTokenProperties;
+
+import javax.ws.rs.ProcessingException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("KeycloakTokenRefresher tests")
+@ExtendWith(MockitoExtension.class)
+class KeycloakTokenRefresherTest {
+
+    @Mock
+    private Keycloak keycloak;
+    @Mock
+    private TokenManager tokenManager;
+    private SimpleMeterRegistry meterRegistry;
+    private KeycloakTokenRefresher tokenRefresher;
+
+    @BeforeEach
+    void setUp() {
+        KeycloakTokenProperties properties = new KeycloakTokenProperties();
+        properties.setRetryInterval(Duration.ofMillis(100));
+        meterRegistry = new SimpleMeterRegistry();
+        tokenRefresher = new KeycloakTokenRefresher(keycloak, properties, meterRegistry);
+        given(keycloak.tokenManager()).willReturn(tokenManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenRefresher.close();
+    }
+
+    @Test
+    @DisplayName("should fetch a token on start and refresh it before it expires")
+    void shouldRefreshTokenBeforeItExpires() {
+        // Given
+        given(tokenManager.grantToken()).willReturn(token(2));
+        given(tokenManager.refreshToken()).willReturn(token(2));
+
+        // When
+        tokenRefresher.start();
+
+        // Then
+        verify(tokenManager, timeout(1000)).grantToken();
+        verify(tokenManager, timeout(3000)).refreshToken();
+        assertThat(meterRegistry.get("keycloak.token.refresh").tag("outcome", "success").timer().count())
+            .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("keycloak.token.age").timeGauge().value()).isNotNaN();
+    }
+
+    @Test
+    @DisplayName("should retry a failed token refresh")
+    void shouldRetryFailedRefresh() {
+        // Given
+        given(tokenManager.grantToken())
+            .willThrow(new ProcessingException("test error"))
+            .willReturn(token(60));
+
+        // When
+        tokenRefresher.start();
+
+        // Then
+        verify(tokenManager, timeout(1000).times(2)).grantToken();
+        assertThat(meterRegistry.get("keycloak.token.refresh").tag("outcome", "failure").timer().count()).isEqualTo(1);
+    }
+
+    private static AccessTokenResponse token(long expiresIn) {
+        AccessTokenResponse token = new AccessTokenResponse();
+        token.setToken("token");
+        token.setExpiresIn(expiresIn);
+        return token;
+    }
+}
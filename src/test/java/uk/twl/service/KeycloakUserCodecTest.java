@@ -0,0 +1,90 @@
+package uk.twl.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.CredentialRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import uk.twl.model.KeycloakUserDto;
+import uk.twl.service.KeycloakUserCodec.DecodedUser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Keycloak User Codec Tests")
+class KeycloakUserCodecTest {
+
+    private final KeycloakUserCodec codec = new KeycloakUserCodec(new ObjectMapper());
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    @DisplayName("Should read a valid user into its Keycloak representation")
+    void shouldReadValidUser() throws IOException {
+        // When
+        DecodedUser decoded = read("{\"username\": \"testuser\", \"unknown\": {\"a\": [1]}, \"password\": \"testpassword\"}");
+
+        // Then
+        assertThat(decoded.errors()).isNull();
+        UserRepresentation user = decoded.user();
+        assertThat(user.getUsername()).isEqualTo("testuser");
+        assertThat(user.isEnabled()).isTrue();
+        assertThat(user.getCredentials()).singleElement().satisfies(credential -> {
+            assertThat(credential.getType()).isEqualTo(CredentialRepresentation.PASSWORD);
+            assertThat(credential.getValue()).isEqualTo("testpassword");
+        });
+    }
+
+    @Test
+    @DisplayName("Should read the same user as databinding of KeycloakUserDto")
+    void shouldReadSameUserAsDatabinding() throws IOException {
+        // Given
+        String body = "{\"username\": \"testuser\", \"password\": \"testpassword\"}";
+        KeycloakUserDto boundUser = new ObjectMapper().readValue(body, KeycloakUserDto.class);
+
+        // When
+        DecodedUser decoded = read(body);
+
+        // Then
+        assertThat(decoded.user().getUsername()).isEqualTo(boundUser.getUsername());
+        assertThat(decoded.user().getCredentials().get(0).getValue()).isEqualTo(boundUser.getPassword());
+    }
+
+    @Test
+    @DisplayName("Should report the same errors as Bean Validation of KeycloakUserDto")
+    void shouldReportBeanValidationErrors() throws IOException {
+        // Given
+        KeycloakUserDto invalidUser = KeycloakUserDto.builder().username(" ").build();
+        Map<String, String> expectedErrors = validator.validate(invalidUser).stream()
+            .collect(Collectors.toMap(violation -> violation.getPropertyPath().toString(), ConstraintViolation::getMessage));
+
+        // When
+        DecodedUser decoded = read("{\"username\": \" \", \"password\": null}");
+
+        // Then
+        assertThat(decoded.user()).isNull();
+        assertThat(decoded.errors()).isEqualTo(expectedErrors).containsOnlyKeys("username", "password");
+    }
+
+    @Test
+    @DisplayName("Should reject bodies that are not a user object")
+    void shouldRejectMalformedBodies() {
+        for (String body : new String[] {"", "[]", "\"testuser\"", "{\"username\": [\"testuser\"]}", "{\"username\": "}) {
+            assertThatThrownBy(() -> read(body)).as(body).isInstanceOf(JsonParseException.class);
+        }
+    }
+
+    private DecodedUser read(String body) throws IOException {
+        return codec.read(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+}
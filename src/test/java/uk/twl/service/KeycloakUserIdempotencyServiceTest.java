@@ -0,0 +1,206 @@
+package uk.twl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.twl.config.KeycloakIdempotencyProperties;
+import uk.twl.exception.DuplicateKeycloakUserException;
+import uk.twl.exception.IdempotencyKeyReuseException;
+import uk.twl.exception.KeycloakCommunicationException;
+import uk.twl.exception.KeycloakUnavailableException;
+import uk.twl.exception.KeycloakUserCreationException;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KeycloakUserIdempotencyService tests")
+class KeycloakUserIdempotencyServiceTest {
+
+    @Mock
+    private KeycloakUserService userService;
+    private KeycloakUserIdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new KeycloakUserIdempotencyService(userService, new KeycloakIdempotencyProperties(),
+            new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("should replay a duplicate outcome without calling Keycloak again")
+    void shouldReplayDuplicateOutcome() throws Exception {
+        // Given
+        willThrow(new DuplicateKeycloakUserException("testuser")).given(userService).createUser("testuser", "testpassword");
+
+        // When/Then
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"))
+                .isInstanceOf(DuplicateKeycloakUserException.class);
+        }
+        verify(userService, times(1)).createUser("testuser", "testpassword");
+    }
+
+    @Test
+    @DisplayName("should forget a key whose creation did not call Keycloak, so a retry calls Keycloak again")
+    void shouldRetryAfterKeycloakWasNotCalled() throws Exception {
+        // Given
+        willThrow(new KeycloakUnavailableException("test error"))
+            .willDoNothing()
+            .given(userService).createUser("testuser", "testpassword");
+
+        // When/Then
+        assertThatThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"))
+            .isInstanceOf(KeycloakUnavailableException.class);
+        assertThatNoException().isThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"));
+        verify(userService, times(2)).createUser("testuser", "testpassword");
+    }
+
+    @Test
+    @DisplayName("should report a retry as created when the lost attempt created the user")
+    void shouldReconcileRetryAfterLostResponse() throws Exception {
+        // Given
+        willThrow(new KeycloakCommunicationException("read timeout"))
+            .willThrow(new DuplicateKeycloakUserException("testuser"))
+            .given(userService).createUser("testuser", "testpassword");
+        given(userService.wasCreatedSince(eq("testuser"), anyLong())).willReturn(true);
+
+        // When/Then
+        assertThatThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"))
+            .isInstanceOf(KeycloakCommunicationException.class);
+        assertThatNoException().isThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"));
+        assertThatNoException().isThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"));
+        verify(userService, times(2)).createUser("testuser", "testpassword");
+    }
+
+    @Test
+    @DisplayName("should keep an inconclusive key when its retry could not call Keycloak")
+    void shouldKeepInconclusiveKeyWhenRetryIsRefused() throws Exception {
+        // Given
+        willThrow(new KeycloakCommunicationException("read timeout"))
+            .willThrow(new KeycloakUnavailableException("Keycloak is unavailable"))
+            .willThrow(new DuplicateKeycloakUserException("testuser"))
+            .given(userService).createUser("testuser", "testpassword");
+        given(userService.wasCreatedSince(eq("testuser"), anyLong())).willReturn(true);
+
+        // When/Then
+        assertThatThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"))
+            .isInstanceOf(KeycloakCommunicationException.class);
+        assertThatThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"))
+            .isInstanceOf(KeycloakUnavailableException.class);
+        assertThatNoException().isThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"));
+        verify(userService, times(3)).createUser("testuser", "testpassword");
+    }
+
+    @Test
+    @DisplayName("should keep a key whose creation was refused after an attempt that may have created the user")
+    void shouldKeepKeyWhenRefusedAfterInconclusiveAttempt() throws Exception {
+        // Given
+        willThrow(new KeycloakUnavailableException("Keycloak is unavailable", null, true))
+            .willThrow(new DuplicateKeycloakUserException("testuser"))
+            .given(userService).createUser("testuser", "testpassword");
+        given(userService.wasCreatedSince(eq("testuser"), anyLong())).willReturn(true);
+
+        // When/Then
+        assertThatThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"))
+            .isInstanceOf(KeycloakUnavailableException.class);
+        assertThatNoException().isThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"));
+        verify(userService, times(2)).createUser("testuser", "testpassword");
+    }
+
+    @Test
+    @DisplayName("should replay a failure Keycloak answered definitively without calling Keycloak again")
+    void shouldReplayDefinitiveFailure() throws Exception {
+        // Given
+        willThrow(new KeycloakUserCreationException("Error creating user: status code 400", 400))
+            .given(userService).createUser("testuser", "testpassword");
+
+        // When/Then
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> idempotencyService.createUser("key", "testuser", "testpassword"))
+                .hasMessageContaining("status code 400");
+        }
+        verify(userService, times(1)).createUser("testuser", "testpassword");
+    }
+
+    @Test
+    @DisplayName("should reject a key sent again with a different password")
+    void shouldRejectKeyReusedForDifferentUser() throws Exception {
+        // Given
+        willDoNothing().given(userService).createUser("testuser", "testpassword");
+        idempotencyService.createUser("key", "testuser", "testpassword");
+
+        // When/Then
+        assertThatThrownBy(() -> idempotencyService.createUser("key", "testuser", "otherpassword"))
+            .isInstanceOf(IdempotencyKeyReuseException.class);
+    }
+
+    @Test
+    @DisplayName("should make concurrent requests with the same key wait for the one in flight")
+    void shouldCoalesceConcurrentRequests() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        willAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).given(userService).createUser("testuser", "testpassword");
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> createQuietly("key"));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        Thread secondThread = new Thread(() -> {
+            try {
+                createQuietly("key");
+                second.complete(null);
+            } catch (RuntimeException e) {
+                second.completeExceptionally(e);
+            }
+        });
+        secondThread.start();
+        awaitParkedOnAttemptInFlight(secondThread);
+        release.countDown();
+
+        // Then
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        verify(userService, times(1)).createUser("testuser", "testpassword");
+    }
+
+    private static void awaitParkedOnAttemptInFlight(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!(thread.getState() == Thread.State.WAITING && Arrays.stream(thread.getStackTrace())
+            .anyMatch(frame -> frame.getMethodName().equals("failure")))) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("The second request never waited for the one in flight");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private void createQuietly(String idempotencyKey) {
+        try {
+            idempotencyService.createUser(idempotencyKey, "testuser", "testpassword");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package uk.twl.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static uk.twl.service.KeycloakUserImportService.TEXT_CSV;
+
+@DisplayName("KeycloakUserImportService tests")
+@ExtendWith(MockitoExtension.class)
+class KeycloakUserImportServiceTest {
+
+    @Mock
+    private KeycloakUserService userService;
+    private ObjectMapper objectMapper;
+    private KeycloakUserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        importService = new KeycloakUserImportService(userService, objectMapper);
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        lenient().when(userService.createUsersAsync(anyList()))
+            .thenAnswer(invocation -> CompletableFuture.completedFuture(created(invocation.getArgument(0))));
+        given(userService.createUsers(anyList()))
+            .willAnswer(invocation -> created(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("should import NDJSON records in chunks and write the outcome of each record")
+    void shouldImportNdjsonRecords() throws Exception {
+        // Given
+        String input = """
+            {"username": "user1", "password": "password1"}
+            {"username": "user2", "password": "password2"}
+            {"username": "user3", "password": "password3"}
+            """;
+
+        // When
+        List<KeycloakUserCreationResult> results = importUsers(input, APPLICATION_NDJSON.toString());
+
+        // Then
+        assertThat(results).extracting(KeycloakUserCreationResult::getUsername).containsExactly("user1", "user2", "user3");
+        assertThat(results).allMatch(result -> result.getOutcome() == KeycloakUserCreationResult.Outcome.CREATED);
+    }
+
+    @Test
+    @DisplayName("should import CSV records with a header row")
+    void shouldImportCsvRecords() throws Exception {
+        // Given
+        String input = """
+            username,password
+            user1,password1
+            user2,password2
+            """;
+
+        // When
+        List<KeycloakUserCreationResult> results = importUsers(input, TEXT_CSV.toString());
+
+        // Then
+        assertThat(results).extracting(KeycloakUserCreationResult::getUsername).containsExactly("user1", "user2");
+    }
+
+    @Test
+    @DisplayName("should report a malformed record after the outcome of the records before it")
+    void shouldReportMalformedRecord() throws Exception {
+        // Given
+        String input = """
+            {"username": "user1", "password": "password1"}
+            {"username": "user2",
+            """;
+
+        // When
+        List<KeycloakUserCreationResult> results = importUsers(input, APPLICATION_NDJSON.toString());
+
+        // Then
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).getUsername()).isEqualTo("user1");
+        assertThat(results.get(1).getOutcome()).isEqualTo(KeycloakUserCreationResult.Outcome.FAILED);
+        assertThat(results.get(1).getStatusCode()).isEqualTo(400);
+        assertThat(results.get(1).getMessage()).startsWith("Malformed user record");
+    }
+
+    private List<KeycloakUserCreationResult> importUsers(String input, String format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        importService.importUsers(new ByteArrayInputStream(input.getBytes(UTF_8)),
+            MediaType.parseMediaType(format), output);
+        return objectMapper.readerFor(KeycloakUserCreationResult.class)
+            .<KeycloakUserCreationResult>readValues(output.toByteArray())
+            .readAll();
+    }
+
+    private static List<KeycloakUserCreationResult> created(List<KeycloakUserDto> users) {
+        return users.stream().map(user -> KeycloakUserCreationResult.created(user.getUsername())).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package uk.twl.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
+import uk.twl.config.KeycloakJobProperties;
+import uk.twl.config.LoggingConfig;
+import uk.twl.exception.KeycloakUserJobQueueFullException;
+import uk.twl.logging.CorrelationIdFilter;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+import uk.twl.model.KeycloakUserJob;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KeycloakUserJobService tests")
+class KeycloakUserJobServiceTest {
+
+    @Mock
+    private KeycloakUserService userService;
+    private KeycloakUserJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        KeycloakJobProperties properties = new KeycloakJobProperties();
+        properties.setConcurrency(1);
+        properties.setQueueCapacity(1);
+        jobService = new KeycloakUserJobService(userService, properties, new LoggingConfig().mdcTaskDecorator(),
+            new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.close();
+    }
+
+    @Test
+    @DisplayName("should run a queued job and keep its outcome to be polled")
+    void shouldRunQueuedJob() throws Exception {
+        // Given
+        KeycloakUserDto user = KeycloakUserDto.builder().username("testuser").password("testpassword").build();
+        given(userService.tryCreateUser(user)).willReturn(KeycloakUserCreationResult.created("testuser"));
+
+        // When
+        KeycloakUserJob job = jobService.submit(user);
+
+        // Then
+        assertThat(job.getStatus()).isEqualTo(KeycloakUserJob.Status.QUEUED);
+        verify(userService, timeout(5000)).tryCreateUser(user);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (jobService.find(job.getId()).orElseThrow().getStatus() != KeycloakUserJob.Status.DONE
+            && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(jobService.find(job.getId())).get()
+            .extracting(KeycloakUserJob::getResult)
+            .extracting(KeycloakUserCreationResult::getOutcome)
+            .isEqualTo(KeycloakUserCreationResult.Outcome.CREATED);
+        assertThat(jobService.find("unknown")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should reject jobs once the queue is full")
+    void shouldRejectJobsWhenQueueIsFull() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        given(userService.tryCreateUser(any())).willAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return KeycloakUserCreationResult.created("testuser");
+        });
+        KeycloakUserDto user = KeycloakUserDto.builder().username("testuser").password("testpassword").build();
+        jobService.submit(user);
+        verify(userService, timeout(5000)).tryCreateUser(any());
+        jobService.submit(user);
+
+        // When/Then
+        assertThatThrownBy(() -> jobService.submit(user)).isInstanceOf(KeycloakUserJobQueueFullException.class);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("should run a job with the correlation ID of the request that submitted it")
+    void shouldRunJobWithCorrelationId() throws Exception {
+        // Given
+        KeycloakUserDto user = KeycloakUserDto.builder().username("testuser").password("testpassword").build();
+        CompletableFuture<String> jobCorrelationId = new CompletableFuture<>();
+        given(userService.tryCreateUser(user)).willAnswer(invocation -> {
+            jobCorrelationId.complete(MDC.get(CorrelationIdFilter.CORRELATION_ID));
+            return KeycloakUserCreationResult.created("testuser");
+        });
+
+        // When
+        MDC.put(CorrelationIdFilter.CORRELATION_ID, "request-1");
+        try {
+            jobService.submit(user);
+        } finally {
+            MDC.remove(CorrelationIdFilter.CORRELATION_ID);
+        }
+
+        // Then
+        assertThat(jobCorrelationId.get(5, TimeUnit.SECONDS)).isEqualTo("request-1");
+    }
+}
@@ -0,0 +1,104 @@
+package uk.twl.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import uk.twl.exception.DuplicateKeycloakUserException;
+import uk.twl.exception.KeycloakCommunicationException;
+import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.stub.StubKeycloakServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exercises {@link KeycloakUserService} through the real admin client and HTTP transport against
+ * {@link StubKeycloakServer}.
+ */
+@SpringBootTest
+@DisplayName("KeycloakUserService stub Keycloak integration tests")
+class KeycloakUserServiceStubIntegrationTest {
+
+    private static final StubKeycloakServer KEYCLOAK = startKeycloak();
+
+    @Autowired
+    private KeycloakUserService userService;
+
+    @DynamicPropertySource
+    static void keycloakProperties(DynamicPropertyRegistry registry) {
+        registry.add("keycloak.auth-server-url", KEYCLOAK::url);
+        registry.add("keycloak.http.read-timeout", () -> "500ms");
+    }
+
+    @BeforeEach
+    void setUp() {
+        KEYCLOAK.reset();
+        KEYCLOAK.latency(Duration.ZERO).errorRate(0).conflictRate(0).rejectDuplicates(true);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        KEYCLOAK.close();
+    }
+
+    @Test
+    @DisplayName("should create a new user in Keycloak over HTTP")
+    void shouldCreateUser() throws KeycloakUserCreationException {
+        // When
+        userService.createUser("created-user", "stub-password");
+
+        // Then
+        assertThat(KEYCLOAK.createdUsernames()).contains("created-user");
+    }
+
+    @Test
+    @DisplayName("should throw DuplicateKeycloakUserException when Keycloak answers 409")
+    void shouldThrowDuplicateKeycloakUserException() throws KeycloakUserCreationException {
+        // Given
+        userService.createUser("duplicate-user", "stub-password");
+
+        // When/Then
+        assertThatThrownBy(() -> userService.createUser("duplicate-user", "stub-password"))
+            .isInstanceOf(DuplicateKeycloakUserException.class);
+    }
+
+    @Test
+    @DisplayName("should throw KeycloakUserCreationException with the status code when Keycloak fails")
+    void shouldThrowKeycloakUserCreationException() {
+        // Given
+        KEYCLOAK.errorRate(1).errorStatus(500);
+
+        // When/Then
+        assertThatThrownBy(() -> userService.createUser("failed-user", "stub-password"))
+            .isExactlyInstanceOf(KeycloakUserCreationException.class)
+            .hasMessageContaining("status code 500");
+    }
+
+    @Test
+    @DisplayName("should throw KeycloakCommunicationException when Keycloak answers after the read timeout")
+    void shouldThrowKeycloakCommunicationExceptionOnTimeout() {
+        // Given
+        KEYCLOAK.latency(Duration.ofSeconds(2));
+
+        // When/Then
+        assertThatThrownBy(() -> userService.createUser("slow-user", "stub-password"))
+            .isInstanceOf(KeycloakCommunicationException.class);
+    }
+
+    private static StubKeycloakServer startKeycloak() {
+        try {
+            return new StubKeycloakServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
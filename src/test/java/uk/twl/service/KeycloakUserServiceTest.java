@@ -1,5 +1,9 @@
 package uk.twl.service;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,19 +16,48 @@ import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import uk.twl.config.KeycloakLimitProperties;
+import uk.twl.config.KeycloakRetryProperties;
+import uk.twl.config.KeycloakUserCacheProperties;
+import uk.twl.config.KeycloakUsernameIndexProperties;
 import uk.twl.exception.DuplicateKeycloakUserException;
 import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.exception.UnknownKeycloakRealmException;
+import uk.twl.model.KeycloakUser;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
 
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.params.provider.EnumSource.Mode.INCLUDE;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -41,6 +74,25 @@ class KeycloakUserServiceTest {
     private RealmResource realmResource;
     @Mock
     private UsersResource usersResource;
+    @Spy
+    private KeycloakAdminGateway adminGateway = new KeycloakAdminGateway(new SimpleMeterRegistry(),
+        CircuitBreaker.ofDefaults("test"), Bulkhead.ofDefaults("test"), new KeycloakLimitProperties());
+    @Spy
+    private KeycloakUserDtoValidator userValidator =
+        new KeycloakUserDtoValidator(Validation.buildDefaultValidatorFactory().getValidator());
+    @Spy
+    private AsyncTaskExecutor taskExecutor = new TaskExecutorAdapter(Executors.newFixedThreadPool(4));
+    @Spy
+    private KeycloakUsernameIndex usernameIndex = newUsernameIndex();
+    @Mock
+    private KeycloakClientRegistry clientRegistry;
+    @Spy
+    private KeycloakRetryPolicy retryPolicy = newRetryPolicy();
+    @Spy
+    private KeycloakUserCache userCache =
+        new KeycloakUserCache(new KeycloakUserCacheProperties(), new SimpleMeterRegistry());
+    @Mock
+    private KeycloakPartialImporter partialImporter;
     private String username;
     private String password;
 
@@ -48,6 +100,9 @@ class KeycloakUserServiceTest {
     void setUp() {
         username = "test-user";
         password = "test-password";
+        ReflectionTestUtils.setField(userService, "batchConcurrency", 2);
+        ReflectionTestUtils.setField(userService, "listPageSize", 2);
+        ReflectionTestUtils.setField(userService, "listMaxLimit", 10);
         given(keycloak.realm(any())).willReturn(realmResource);
         given(realmResource.users()).willReturn(usersResource);
     }
@@ -94,6 +149,93 @@ class KeycloakUserServiceTest {
             .hasMessageContaining("Duplicate user: " + username);
     }
 
+    @Test
+    @DisplayName("should create the user with the realm's own admin client when it has one")
+    void shouldCreateUserWithRealmClient() throws KeycloakUserCreationException {
+        // Given
+        Keycloak realmClient = mock(Keycloak.class);
+        RealmResource tenantRealm = mock(RealmResource.class);
+        UsersResource tenantUsers = mock(UsersResource.class);
+        given(clientRegistry.lease("tenant")).willReturn(Optional.of(KeycloakClientRegistry.Lease.unmanaged(realmClient)));
+        given(realmClient.realm("tenant")).willReturn(tenantRealm);
+        given(tenantRealm.users()).willReturn(tenantUsers);
+        given(tenantUsers.create(any(UserRepresentation.class))).willReturn(Response.status(201).build());
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(201).build());
+
+        // When
+        userService.createUser("tenant", username, password);
+        userService.createUser(username, password);
+
+        // Then
+        verify(tenantUsers, times(1)).create(any(UserRepresentation.class));
+        verify(usersResource, times(1)).create(any(UserRepresentation.class));
+    }
+
+    @Test
+    @DisplayName("should reject a realm that is neither configured nor listed without calling Keycloak")
+    void shouldRejectUnknownRealm() throws KeycloakUserCreationException {
+        // Given
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(201).build());
+
+        // When
+        assertThatThrownBy(() -> userService.createUser("other", username, password))
+            .isInstanceOf(UnknownKeycloakRealmException.class)
+            .hasMessageContaining("Unknown realm: other");
+        userService.createUser(username, password);
+
+        // Then
+        verify(usersResource, times(1)).create(any(UserRepresentation.class));
+    }
+
+    @Test
+    @DisplayName("should reject a username Keycloak already reported as a duplicate without calling Keycloak again")
+    void shouldRejectKnownDuplicateWithoutCallingKeycloak() {
+        // Given
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(CONFLICT.getStatusCode()).build());
+        assertThatThrownBy(() -> userService.createUser(username, password))
+            .isInstanceOf(DuplicateKeycloakUserException.class);
+
+        // When/Then
+        assertThatThrownBy(() -> userService.createUser(username.toUpperCase(), password))
+            .isInstanceOf(DuplicateKeycloakUserException.class);
+        verify(usersResource, times(1)).create(any(UserRepresentation.class));
+    }
+
+    @Test
+    @DisplayName("should make a single Keycloak call for concurrent creations of the same username")
+    void shouldCoalesceConcurrentCreationsOfSameUsername() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(usersResource.create(any(UserRepresentation.class))).willAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Response.status(201).build();
+        });
+        CompletableFuture<Void> leader = CompletableFuture.runAsync(() -> createQuietly(username));
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        CompletableFuture<Void> follower = new CompletableFuture<>();
+        Thread followerThread = new Thread(() -> {
+            try {
+                createQuietly(username.toUpperCase());
+                follower.complete(null);
+            } catch (RuntimeException e) {
+                follower.completeExceptionally(e);
+            }
+        });
+        followerThread.start();
+        awaitParkedOnInFlightCreation(followerThread);
+        release.countDown();
+
+        // Then
+        assertThatNoException().isThrownBy(() -> leader.get(5, TimeUnit.SECONDS));
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+            .hasRootCauseInstanceOf(DuplicateKeycloakUserException.class);
+        verify(usersResource, times(1)).create(any(UserRepresentation.class));
+    }
+
     @Test
     @DisplayName("should throw KeycloakCommunicationException when there is a problem communicating with Keycloak")
     void shouldThrowKeycloakCommunicationException() {
@@ -105,5 +247,242 @@ class KeycloakUserServiceTest {
             .isInstanceOf(KeycloakUserCreationException.class)
             .hasMessageContaining("Error creating user");
     }
-}
 
+    @Test
+    @DisplayName("should retry a creation that failed to connect or with a gateway error")
+    void shouldRetryTransientFailures() throws KeycloakUserCreationException {
+        // Given
+        given(usersResource.create(any(UserRepresentation.class)))
+            .willThrow(new ProcessingException(new ConnectException("Connection refused")))
+            .willReturn(Response.status(503).build())
+            .willReturn(Response.status(201).build());
+
+        // When
+        userService.createUser(username, password);
+
+        // Then
+        verify(usersResource, times(3)).create(any(UserRepresentation.class));
+    }
+
+    @Test
+    @DisplayName("should not report a user created by an earlier attempt of a retried creation as a duplicate")
+    void shouldNotReportUserCreatedByEarlierAttemptAsDuplicate() throws KeycloakUserCreationException {
+        // Given
+        UserRepresentation createdUser = new UserRepresentation();
+        createdUser.setUsername(username);
+        createdUser.setCreatedTimestamp(System.currentTimeMillis());
+        given(usersResource.create(any(UserRepresentation.class)))
+            .willReturn(Response.status(504).build())
+            .willReturn(Response.status(CONFLICT.getStatusCode()).build());
+        given(usersResource.search(username, true)).willReturn(List.of(createdUser));
+
+        // When/Then
+        assertThatNoException().isThrownBy(() -> userService.createUser(username, password));
+        verify(usersResource, times(2)).create(any(UserRepresentation.class));
+    }
+
+    @Test
+    @DisplayName("should report a duplicate on retry when the existing user predates the creation")
+    void shouldReportDuplicateOnRetryWhenExistingUserIsOlder() {
+        // Given
+        UserRepresentation existingUser = new UserRepresentation();
+        existingUser.setUsername(username);
+        existingUser.setCreatedTimestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+        given(usersResource.create(any(UserRepresentation.class)))
+            .willReturn(Response.status(502).build())
+            .willReturn(Response.status(CONFLICT.getStatusCode()).build());
+        given(usersResource.search(username, true)).willReturn(List.of(existingUser));
+
+        // When/Then
+        assertThatThrownBy(() -> userService.createUser(username, password))
+            .isInstanceOf(DuplicateKeycloakUserException.class);
+    }
+
+    @Test
+    @DisplayName("should answer repeated lookups of a user from the cache until the user is created")
+    void shouldCacheUserLookupsUntilCreated() throws KeycloakUserCreationException {
+        // Given
+        given(usersResource.search(username, true)).willReturn(List.of());
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(201).build());
+
+        // When
+        Optional<KeycloakUser> before = userService.findUser(username);
+        Optional<KeycloakUser> cached = userService.findUser(username.toUpperCase());
+        userService.createUser(username, password);
+        userService.findUser(username);
+
+        // Then
+        assertThat(before).isEmpty();
+        assertThat(cached).isEmpty();
+        verify(usersResource, times(2)).search(username, true);
+    }
+
+    @Test
+    @DisplayName("should not cache a lookup that was in flight while the user was created")
+    void shouldNotCacheLookupOverlappingCreation() throws KeycloakUserCreationException {
+        // Given
+        given(usersResource.create(any(UserRepresentation.class))).willReturn(Response.status(201).build());
+        given(usersResource.search(username, true))
+            .willAnswer(invocation -> {
+                // The user is created while the lookup is in flight, after Keycloak searched
+                userService.createUser(username, password);
+                return List.of();
+            })
+            .willReturn(List.of(newUser(username)));
+
+        // When
+        Optional<KeycloakUser> during = userService.findUser(username);
+        Optional<KeycloakUser> after = userService.findUser(username);
+
+        // Then
+        assertThat(during).isEmpty();
+        assertThat(after).isPresent();
+        verify(usersResource, times(2)).search(username, true);
+    }
+
+    @Test
+    @DisplayName("should list users page by page and return the position of the next page")
+    void shouldListUsersPageByPage() throws KeycloakUserCreationException {
+        // Given
+        given(usersResource.list(0, 2)).willReturn(List.of(newUser("a"), newUser("b")));
+        given(usersResource.list(2, 2)).willReturn(List.of(newUser("c"), newUser("d")));
+        List<List<KeycloakUser>> pages = new ArrayList<>();
+
+        // When
+        OptionalInt next = userService.listUsers(0, 3, pages::add);
+
+        // Then
+        assertThat(pages).hasSize(2);
+        assertThat(pages.get(1)).extracting(KeycloakUser::getUsername).containsExactly("c");
+        assertThat(next).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("should not overflow or return the same position when listing from the largest position")
+    void shouldStopListingAtLargestPosition() throws KeycloakUserCreationException {
+        // Given
+        given(usersResource.list(Integer.MAX_VALUE - 1, 2)).willReturn(List.of(newUser("y"), newUser("z")));
+        List<KeycloakUser> users = new ArrayList<>();
+
+        // When
+        OptionalInt next = userService.listUsers(Integer.MAX_VALUE - 1, 10, users::addAll);
+        OptionalInt last = userService.listUsers(Integer.MAX_VALUE, 10, users::addAll);
+
+        // Then
+        assertThat(users).extracting(KeycloakUser::getUsername).containsExactly("y");
+        assertThat(next).isEmpty();
+        assertThat(last).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should report no next page when Keycloak has no more users")
+    void shouldReportNoNextPageAtEndOfUsers() throws KeycloakUserCreationException {
+        // Given
+        given(usersResource.list(4, 2)).willReturn(List.of(newUser("e")));
+        List<KeycloakUser> users = new ArrayList<>();
+
+        // When
+        OptionalInt next = userService.listUsers(4, 10, users::addAll);
+
+        // Then
+        assertThat(users).extracting(KeycloakUser::getUsername).containsExactly("e");
+        assertThat(next).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should report the outcome of each user of a batch without failing the whole batch")
+    void shouldReportOutcomeOfEachBatchUser() {
+        // Given
+        given(usersResource.create(argThat(user -> user != null && "created-user".equals(user.getUsername()))))
+            .willReturn(Response.status(201).build());
+        given(usersResource.create(argThat(user -> user != null && "duplicate-user".equals(user.getUsername()))))
+            .willReturn(Response.status(409).build());
+        given(usersResource.create(argThat(user -> user != null && "failed-user".equals(user.getUsername()))))
+            .willReturn(Response.status(503).build());
+        List<KeycloakUserDto> users = List.of(
+            KeycloakUserDto.builder().username("created-user").password(password).build(),
+            KeycloakUserDto.builder().username("duplicate-user").password(password).build(),
+            KeycloakUserDto.builder().username("failed-user").password(password).build(),
+            KeycloakUserDto.builder().username("invalid-user").build());
+
+        // When
+        List<KeycloakUserCreationResult> results = userService.createUsers(users);
+
+        // Then
+        assertThat(results).extracting(KeycloakUserCreationResult::getUsername)
+            .containsExactly("created-user", "duplicate-user", "failed-user", "invalid-user");
+        assertThat(results).extracting(KeycloakUserCreationResult::getOutcome)
+            .containsExactly(
+                KeycloakUserCreationResult.Outcome.CREATED,
+                KeycloakUserCreationResult.Outcome.DUPLICATE,
+                KeycloakUserCreationResult.Outcome.FAILED,
+                KeycloakUserCreationResult.Outcome.FAILED);
+        assertThat(results).extracting(KeycloakUserCreationResult::getStatusCode)
+            .containsExactly(201, 409, 503, 400);
+        assertThat(results.get(3).getMessage()).isEqualTo("Password is required");
+    }
+
+    @Test
+    @DisplayName("should not create more users of a batch at once than the configured concurrency")
+    void shouldLimitBatchConcurrency() {
+        // Given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        given(usersResource.create(any(UserRepresentation.class))).willAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return Response.status(201).build();
+        });
+        List<KeycloakUserDto> users = IntStream.range(0, 10)
+            .mapToObj(i -> KeycloakUserDto.builder().username(username + i).password(password).build())
+            .toList();
+
+        // When
+        List<KeycloakUserCreationResult> results = userService.createUsers(users);
+
+        // Then
+        assertThat(results).allMatch(result -> result.getOutcome() == KeycloakUserCreationResult.Outcome.CREATED);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+        verify(usersResource, times(10)).create(any(UserRepresentation.class));
+    }
+
+    private static void awaitParkedOnInFlightCreation(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!(thread.getState() == Thread.State.WAITING && Arrays.stream(thread.getStackTrace())
+            .anyMatch(frame -> frame.getMethodName().equals("awaitInFlightCreation")))) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("The second creation never waited for the one in flight");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private void createQuietly(String username) {
+        try {
+            userService.createUser(username, password);
+        } catch (KeycloakUserCreationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static UserRepresentation newUser(String username) {
+        UserRepresentation user = new UserRepresentation();
+        user.setId(username + "-id");
+        user.setUsername(username);
+        return user;
+    }
+
+    private static KeycloakRetryPolicy newRetryPolicy() {
+        KeycloakRetryProperties properties = new KeycloakRetryProperties();
+        properties.setInitialBackoff(Duration.ofMillis(1));
+        return new KeycloakRetryPolicy(properties, new SimpleMeterRegistry());
+    }
+
+    private static KeycloakUsernameIndex newUsernameIndex() {
+        KeycloakUsernameIndexProperties properties = new KeycloakUsernameIndexProperties();
+        properties.setEnabled(true);
+        properties.setWarmUp(false);
+        return new KeycloakUsernameIndex(null, null, properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,110 @@
+package uk.twl.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+import uk.twl.config.KeycloakLimitProperties;
+import uk.twl.config.KeycloakUsernameIndexProperties;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("KeycloakUsernameIndex tests")
+class KeycloakUsernameIndexTest {
+
+    private UsersResource usersResource;
+    private KeycloakUsernameIndexProperties properties;
+    private KeycloakUsernameIndex usernameIndex;
+
+    @BeforeEach
+    void setUp() {
+        Keycloak keycloak = mock(Keycloak.class);
+        RealmResource realmResource = mock(RealmResource.class);
+        usersResource = mock(UsersResource.class);
+        given(keycloak.realm("test-realm")).willReturn(realmResource);
+        given(realmResource.users()).willReturn(usersResource);
+        properties = new KeycloakUsernameIndexProperties();
+        properties.setEnabled(true);
+        properties.setPageSize(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KeycloakAdminGateway adminGateway = new KeycloakAdminGateway(meterRegistry, CircuitBreaker.ofDefaults("test"),
+            Bulkhead.ofDefaults("test"), new KeycloakLimitProperties());
+        usernameIndex = new KeycloakUsernameIndex(keycloak, adminGateway, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        usernameIndex.close();
+    }
+
+    @Test
+    @DisplayName("should warm up from every page of the realm's users")
+    void shouldWarmUpFromEveryPage() {
+        // Given
+        given(usersResource.list(0, 2)).willReturn(users("alice", "bob"));
+        given(usersResource.list(2, 2)).willReturn(users("carol"));
+
+        // When
+        int warmedUp = usernameIndex.warmUp("test-realm").join();
+
+        // Then
+        assertThat(warmedUp).isEqualTo(3);
+        assertThat(usernameIndex.contains("test-realm", "carol")).isTrue();
+        assertThat(usernameIndex.contains("test-realm", "dave")).isFalse();
+        assertThat(usernameIndex.contains("other-realm", "alice")).isFalse();
+    }
+
+    @Test
+    @DisplayName("should neither warm up nor report usernames when disabled")
+    void shouldDoNothingWhenDisabled() {
+        // Given
+        properties.setEnabled(false);
+
+        // When
+        usernameIndex.add("test-realm", "alice");
+
+        // Then
+        assertThat(usernameIndex.warmUp("test-realm").join()).isZero();
+        assertThat(usernameIndex.contains("test-realm", "alice")).isFalse();
+        verify(usersResource, never()).list(0, 2);
+    }
+
+    @Test
+    @DisplayName("should forget usernames once they expire")
+    void shouldForgetExpiredUsernames() throws InterruptedException {
+        // Given
+        properties.setExpireAfterWrite(Duration.ofMillis(50));
+        KeycloakUsernameIndex expiringIndex =
+            new KeycloakUsernameIndex(null, null, properties, new SimpleMeterRegistry());
+        expiringIndex.add("test-realm", "alice");
+
+        // When
+        Thread.sleep(100);
+
+        // Then
+        assertThat(expiringIndex.contains("test-realm", "alice")).isFalse();
+    }
+
+    private static List<UserRepresentation> users(String... usernames) {
+        return Arrays.stream(usernames).map(username -> {
+            UserRepresentation user = new UserRepresentation();
+            user.setUsername(username);
+            return user;
+        }).toList();
+    }
+}
@@ -0,0 +1,206 @@
+package uk.twl.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.token.TokenManager;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import uk.twl.config.KeycloakLimitProperties;
+import uk.twl.exception.DuplicateKeycloakUserException;
+import uk.twl.exception.KeycloakCommunicationException;
+import uk.twl.exception.KeycloakUnavailableException;
+import uk.twl.exception.KeycloakUserCreationException;
+import uk.twl.model.KeycloakUserCreationResult;
+import uk.twl.model.KeycloakUserDto;
+
+import javax.ws.rs.NotAuthorizedException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@DisplayName("ReactiveKeycloakUserService tests")
+@ExtendWith(MockitoExtension.class)
+class ReactiveKeycloakUserServiceTest {
+
+    @Mock
+    private Keycloak keycloak;
+    @Mock
+    private TokenManager tokenManager;
+    private final AtomicReference<ClientRequest> lastRequest = new AtomicReference<>();
+    private final KeycloakUserDtoValidator userValidator =
+        new KeycloakUserDtoValidator(Validation.buildDefaultValidatorFactory().getValidator());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("test");
+
+    @BeforeEach
+    void setUp() {
+        given(keycloak.tokenManager()).willReturn(tokenManager);
+        given(tokenManager.getAccessTokenString()).willReturn("test-token");
+    }
+
+    @Test
+    @DisplayName("should create a new user through the admin REST API with the admin access token")
+    void shouldCreateUser() {
+        // Given
+        ReactiveKeycloakUserService userService = userService(request -> Mono.just(ClientResponse.create(HttpStatus.CREATED).build()));
+
+        // When/Then
+        StepVerifier.create(userService.createUser("test-user", "test-password")).verifyComplete();
+        assertThat(lastRequest.get().method()).isEqualTo(HttpMethod.POST);
+        assertThat(lastRequest.get().url().getPath()).isEqualTo("/admin/realms/test-realm/users");
+        assertThat(lastRequest.get().headers().getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer test-token");
+    }
+
+    @Test
+    @DisplayName("should fail with DuplicateKeycloakUserException when user already exists in Keycloak")
+    void shouldFailWithDuplicateKeycloakUserException() {
+        // Given
+        ReactiveKeycloakUserService userService = userService(request -> Mono.just(ClientResponse.create(HttpStatus.CONFLICT).build()));
+
+        // When/Then
+        StepVerifier.create(userService.createUser("test-user", "test-password"))
+            .expectErrorSatisfies(e -> assertThat(e)
+                .isInstanceOf(DuplicateKeycloakUserException.class)
+                .hasMessageContaining("Duplicate user: test-user"))
+            .verify();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {400, 401, 403, 404, 500, 503})
+    @DisplayName("should fail with KeycloakUserCreationException when response status is not 201 or 409")
+    void shouldFailWithKeycloakUserCreationException(int statusCode) {
+        // Given
+        ReactiveKeycloakUserService userService = userService(request -> Mono.just(ClientResponse.create(HttpStatus.valueOf(statusCode)).build()));
+
+        // When/Then
+        StepVerifier.create(userService.createUser("test-user", "test-password"))
+            .expectErrorSatisfies(e -> assertThat(e)
+                .isExactlyInstanceOf(KeycloakUserCreationException.class)
+                .hasMessageContaining("Error creating user: status code " + statusCode))
+            .verify();
+    }
+
+    @Test
+    @DisplayName("should fail with KeycloakCommunicationException when there is a problem communicating with Keycloak")
+    void shouldFailWithKeycloakCommunicationException() {
+        // Given
+        ReactiveKeycloakUserService userService = userService(request -> Mono.error(new WebClientRequestException(
+            new IOException("test error"), request.method(), request.url(), request.headers())));
+
+        // When/Then
+        StepVerifier.create(userService.createUser("test-user", "test-password"))
+            .expectError(KeycloakCommunicationException.class)
+            .verify();
+    }
+
+    @Test
+    @DisplayName("should time the call through the admin gateway, tagged with the response status")
+    void shouldTimeCallThroughAdminGateway() {
+        // Given
+        ReactiveKeycloakUserService userService = userService(request -> Mono.just(ClientResponse.create(HttpStatus.CREATED).build()));
+
+        // When
+        StepVerifier.create(userService.createUser("test-user", "test-password")).verifyComplete();
+
+        // Then
+        assertThat(meterRegistry.get("keycloak.admin.requests")
+            .tags("realm", "test-realm", "operation", "create-user", "outcome", "201").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should fail with KeycloakUnavailableException without calling Keycloak when the circuit breaker is open")
+    void shouldFailWithKeycloakUnavailableExceptionWhenCircuitIsOpen() {
+        // Given
+        ReactiveKeycloakUserService userService = userService(request -> Mono.just(ClientResponse.create(HttpStatus.CREATED).build()));
+        circuitBreaker.transitionToOpenState();
+
+        // When/Then
+        StepVerifier.create(userService.createUser("test-user", "test-password"))
+            .expectError(KeycloakUnavailableException.class)
+            .verify();
+        assertThat(lastRequest.get()).isNull();
+    }
+
+    @Test
+    @DisplayName("should report the outcome of each user of a batch")
+    void shouldReportOutcomeOfEachBatchUser() {
+        // Given
+        ReactiveKeycloakUserService userService = userService(request -> Mono.just(ClientResponse.create(HttpStatus.CREATED).build()));
+        Flux<KeycloakUserDto> users = Flux.just(
+            KeycloakUserDto.builder().username("user1").password("password").build(),
+            KeycloakUserDto.builder().username("user2").build());
+
+        // When/Then
+        StepVerifier.create(userService.createUsers(users).map(KeycloakUserCreationResult::getOutcome))
+            .expectNext(KeycloakUserCreationResult.Outcome.CREATED, KeycloakUserCreationResult.Outcome.FAILED)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("should fail with KeycloakCommunicationException when the access token cannot be obtained")
+    void shouldFailWithKeycloakCommunicationExceptionOnTokenFailure() {
+        // Given
+        given(tokenManager.getAccessTokenString()).willThrow(new NotAuthorizedException("invalid client"));
+        ReactiveKeycloakUserService userService = userService(request -> Mono.just(ClientResponse.create(HttpStatus.CREATED).build()));
+
+        // When/Then
+        StepVerifier.create(userService.createUser("test-user", "test-password"))
+            .expectError(KeycloakCommunicationException.class)
+            .verify();
+    }
+
+    @Test
+    @DisplayName("should report unexpected errors as failures of the batch user instead of ending the batch")
+    void shouldIsolateUnexpectedErrorsOfBatchUsers() {
+        // Given
+        ReactiveKeycloakUserService userService = userService(request -> Mono.error(new IllegalStateException("test error")));
+        Flux<KeycloakUserDto> users = Flux.just(
+            KeycloakUserDto.builder().username("user1").password("password").build(),
+            KeycloakUserDto.builder().username("user2").password("password").build());
+
+        // When/Then
+        StepVerifier.create(userService.createUsers(users).map(KeycloakUserCreationResult::getOutcome))
+            .expectNext(KeycloakUserCreationResult.Outcome.FAILED, KeycloakUserCreationResult.Outcome.FAILED)
+            .verifyComplete();
+    }
+
+    private ReactiveKeycloakUserService userService(Function<ClientRequest, Mono<ClientResponse>> exchange) {
+        WebClient webClient = WebClient.builder()
+            .baseUrl("http://localhost:8080")
+            .exchangeFunction(request -> {
+                lastRequest.set(request);
+                return exchange.apply(request);
+            })
+            .build();
+        KeycloakAdminGateway adminGateway = new KeycloakAdminGateway(meterRegistry, circuitBreaker,
+            Bulkhead.ofDefaults("test"), new KeycloakLimitProperties());
+        ReactiveKeycloakUserService userService =
+            new ReactiveKeycloakUserService(webClient, keycloak, userValidator, adminGateway);
+        ReflectionTestUtils.setField(userService, "realmName", "test-realm");
+        ReflectionTestUtils.setField(userService, "batchConcurrency", 2);
+        return userService;
+    }
+}
@@ -0,0 +1,67 @@
+package uk.twl.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("FileSpanExporter tests")
+class FileSpanExporterTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("should append each finished span to the file as one JSON line")
+    void shouldExportSpansAsJsonLines() throws IOException {
+        // Given
+        Path file = directory.resolve("spans.jsonl");
+        Span parent;
+        Span child;
+
+        // When
+        try (SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(new FileSpanExporter(file)))
+            .build()) {
+            Tracer tracer = tracerProvider.get("test");
+            parent = tracer.spanBuilder("create-user-request").setSpanKind(SpanKind.SERVER).startSpan();
+            try (Scope ignored = parent.makeCurrent()) {
+                child = tracer.spanBuilder("create-user").setAttribute("realm", "master").startSpan();
+                child.end();
+            }
+            parent.end();
+        }
+
+        // Then
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode childLine = objectMapper.readTree(lines.get(0));
+        assertThat(childLine.get("traceId").asText()).isEqualTo(parent.getSpanContext().getTraceId());
+        assertThat(childLine.get("spanId").asText()).isEqualTo(child.getSpanContext().getSpanId());
+        assertThat(childLine.get("parentSpanId").asText()).isEqualTo(parent.getSpanContext().getSpanId());
+        assertThat(childLine.get("name").asText()).isEqualTo("create-user");
+        assertThat(childLine.get("kind").asText()).isEqualTo("INTERNAL");
+        assertThat(childLine.get("durationMicros").asLong()).isNotNegative();
+        assertThat(childLine.get("status").asText()).isEqualTo("UNSET");
+        assertThat(childLine.get("attributes").get("realm").asText()).isEqualTo("master");
+        JsonNode parentLine = objectMapper.readTree(lines.get(1));
+        assertThat(parentLine.get("name").asText()).isEqualTo("create-user-request");
+        assertThat(parentLine.get("kind").asText()).isEqualTo("SERVER");
+        assertThat(parentLine.has("parentSpanId")).isFalse();
+    }
+}
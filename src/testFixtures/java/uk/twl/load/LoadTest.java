@@ -0,0 +1,137 @@
+package uk.twl.load;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import uk.twl.KeycloakApplication;
+import uk.twl.stub.StubKeycloakServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives {@code POST /users} at a fixed request rate and reports the latency percentiles and throughput.
+ *
+ * <p>Requests are sent on a fixed schedule regardless of how long earlier requests take, so a slow server shows up as
+ * growing latency rather than a lower request rate. Without a target URL the application is started in-process
+ * against a {@link StubKeycloakServer}, so the load test needs no running Keycloak.
+ *
+ * <p>Configured with system properties:
+ * <ul>
+ *     <li>{@code loadTest.url} - the URL of {@code POST /users}, or empty to start the application in-process</li>
+ *     <li>{@code loadTest.rate} - the number of requests per second, 100 by default</li>
+ *     <li>{@code loadTest.duration} - the number of seconds to send requests for, 30 by default</li>
+ *     <li>{@code loadTest.stub.latency}, {@code loadTest.stub.errorRate}, {@code loadTest.stub.conflictRate} - the
+ *     behavior of the stub Keycloak when the application is started in-process</li>
+ *     <li>any other {@code loadTest.app.*} property is passed to the in-process application without the prefix</li>
+ * </ul>
+ *
+ * <p>The in-process application runs without the per-realm Keycloak call limits, so the test measures the application
+ * rather than its own 503s. Set {@code loadTest.app.keycloak.limits.enabled=true} to load test with them.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rate = Integer.getInteger("loadTest.rate", 100);
+        Duration duration = Duration.ofSeconds(Integer.getInteger("loadTest.duration", 30));
+        String url = System.getProperty("loadTest.url", "");
+        if (!url.isEmpty()) {
+            run(URI.create(url), rate, duration);
+            return;
+        }
+        try (StubKeycloakServer keycloak = new StubKeycloakServer()
+            .latency(Duration.ofMillis(Long.getLong("loadTest.stub.latency", 20)))
+            .errorRate(Double.parseDouble(System.getProperty("loadTest.stub.errorRate", "0")))
+            .conflictRate(Double.parseDouble(System.getProperty("loadTest.stub.conflictRate", "0")));
+             ConfigurableApplicationContext application = SpringApplication.run(KeycloakApplication.class,
+                 applicationArgs(keycloak))) {
+            String port = application.getEnvironment().getProperty("local.server.port");
+            run(URI.create("http://localhost:" + port + "/users"), rate, duration);
+        }
+    }
+
+    private static String[] applicationArgs(StubKeycloakServer keycloak) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("keycloak.auth-server-url", keycloak.url());
+        properties.put("keycloak.limits.enabled", "false");
+        properties.put("logging.level.root", "warn");
+        properties.put("logging.level.org.springframework.web", "warn");
+        // Replace the defaults above rather than repeat them, as a repeated argument is bound as a list
+        System.getProperties().stringPropertyNames().stream()
+            .filter(name -> name.startsWith("loadTest.app."))
+            .forEach(name -> properties.put(name.substring("loadTest.app.".length()), System.getProperty(name)));
+        return properties.entrySet().stream()
+            .map(property -> "--" + property.getKey() + "=" + property.getValue())
+            .toArray(String[]::new);
+    }
+
+    private static void run(URI target, int rate, Duration duration) {
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        int requests = (int) (rate * duration.toSeconds());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long[] latencies = new long[requests];
+        int[] statusCodes = new int[requests];
+        List<CompletableFuture<?>> responses = new ArrayList<>(requests);
+        System.out.printf("Sending %d requests to %s at %d/s%n", requests, target, rate);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long scheduled = start + i * intervalNanos;
+            LockSupport.parkNanos(scheduled - System.nanoTime());
+            int request = i;
+            HttpRequest createUser = HttpRequest.newBuilder(target)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                    "{\"username\": \"load-" + runId + "-" + i + "\", \"password\": \"load-password\"}"))
+                .build();
+            responses.add(httpClient.sendAsync(createUser, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    // Latency is measured from the scheduled send time to avoid coordinated omission
+                    latencies[request] = System.nanoTime() - scheduled;
+                    statusCodes[request] = error == null ? response.statusCode() : -1;
+                }));
+        }
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).exceptionally(error -> null).join();
+        long elapsed = System.nanoTime() - start;
+
+        report(latencies, statusCodes, elapsed);
+    }
+
+    private static void report(long[] latencies, int[] statusCodes, long elapsedNanos) {
+        Map<Integer, Integer> statusCounts = new TreeMap<>();
+        Arrays.stream(statusCodes).forEach(statusCode -> statusCounts.merge(statusCode, 1, Integer::sum));
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("Completed %d requests in %.1f s, throughput %.1f requests/s%n",
+            sorted.length, elapsedNanos / 1e9, sorted.length / (elapsedNanos / 1e9));
+        System.out.printf("Latency p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+            percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+        System.out.println("Status codes (-1 is a failed request) " + statusCounts);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,130 @@
+package uk.twl.startup;
+
+import uk.twl.stub.StubKeycloakServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cold start of the application as the time from launching its JVM to its first successful
+ * {@code POST /users}, against a {@link StubKeycloakServer}.
+ *
+ * <p>Each run launches a fresh JVM, so class loading, JIT warm-up and the Keycloak admin client initialization all
+ * count, as they do when an instance is scaled out. The JVM is stopped gracefully after the first successful request,
+ * which also lets a run with {@code -XX:ArchiveClassesAtExit} dump a class-data-sharing archive.
+ *
+ * <p>Configured with system properties:
+ * <ul>
+ *     <li>{@code startup.classpath} - the classpath of the application</li>
+ *     <li>{@code startup.jvmArgs} - extra JVM arguments separated by spaces, such as {@code -XX:SharedArchiveFile}</li>
+ *     <li>{@code startup.runs} - the number of JVMs to launch one after the other, 5 by default</li>
+ *     <li>{@code startup.profile} - the Spring profile to run the application with, {@code prod} by default</li>
+ *     <li>{@code startup.timeout} - the number of seconds to wait for the first successful request, 60 by default</li>
+ * </ul>
+ */
+public final class StartupBenchmark {
+
+    private static final String MAIN_CLASS = "uk.twl.KeycloakApplication";
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String classpath = System.getProperty("startup.classpath");
+        if (classpath == null || classpath.isEmpty()) {
+            throw new IllegalArgumentException("startup.classpath is required");
+        }
+        int runs = Integer.getInteger("startup.runs", 5);
+        Duration timeout = Duration.ofSeconds(Integer.getInteger("startup.timeout", 60));
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofMillis(100))
+            .build();
+        long[] startupTimes = new long[runs];
+        try (StubKeycloakServer keycloak = new StubKeycloakServer()) {
+            for (int run = 0; run < runs; run++) {
+                startupTimes[run] = measure(classpath, keycloak, httpClient, timeout);
+                System.out.printf("Run %d: first successful POST /users after %d ms%n", run + 1,
+                    TimeUnit.NANOSECONDS.toMillis(startupTimes[run]));
+            }
+        }
+        report(startupTimes);
+    }
+
+    private static long measure(String classpath, StubKeycloakServer keycloak, HttpClient httpClient, Duration timeout)
+        throws IOException, InterruptedException {
+        int port = freePort();
+        HttpRequest createUser = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(
+                "{\"username\": \"startup-" + System.nanoTime() + "\", \"password\": \"startup-password\"}"))
+            .build();
+        long start = System.nanoTime();
+        Process application = new ProcessBuilder(command(classpath, keycloak, port))
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try {
+            while (System.nanoTime() - start < timeout.toNanos()) {
+                if (!application.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + application.exitValue());
+                }
+                try {
+                    if (httpClient.send(createUser, HttpResponse.BodyHandlers.discarding()).statusCode() == 201) {
+                        return System.nanoTime() - start;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("No successful POST /users within " + timeout);
+        } finally {
+            application.destroy();
+            if (!application.waitFor(30, TimeUnit.SECONDS)) {
+                application.destroyForcibly();
+            }
+        }
+    }
+
+    private static List<String> command(String classpath, StubKeycloakServer keycloak, int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        Arrays.stream(System.getProperty("startup.jvmArgs", "").split(" "))
+            .filter(arg -> !arg.isBlank())
+            .forEach(command::add);
+        command.addAll(List.of(
+            "-cp", classpath,
+            MAIN_CLASS,
+            "--spring.profiles.active=" + System.getProperty("startup.profile", "prod"),
+            "--server.port=" + port,
+            "--keycloak.auth-server-url=" + keycloak.url(),
+            "--logging.level.root=warn"));
+        return command;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void report(long[] startupTimes) {
+        long[] sorted = startupTimes.clone();
+        Arrays.sort(sorted);
+        System.out.printf("Time to first successful POST /users over %d runs: min %d ms, median %d ms, max %d ms%n",
+            sorted.length, TimeUnit.NANOSECONDS.toMillis(sorted[0]),
+            TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length / 2]),
+            TimeUnit.NANOSECONDS.toMillis(sorted[sorted.length - 1]));
+    }
+}
@@ -0,0 +1,261 @@
+package uk.twl.stub;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-process HTTP stand-in for the Keycloak token and admin users endpoints, for exercising the real admin client
+ * without a running Keycloak.
+ *
+ * <p>User creations can be slowed down with {@link #latency(Duration)}, failed at random with
+ * {@link #errorRate(double)}, and answered with 409 either at random with {@link #conflictRate(double)} or for every
+ * username that was already created with {@link #rejectDuplicates(boolean)}.
+ */
+public class StubKeycloakServer implements AutoCloseable {
+
+    private static final Pattern TOKEN_PATH = Pattern.compile("/realms/[^/]+/protocol/openid-connect/token");
+    private static final Pattern USERS_PATH = Pattern.compile("/admin/realms/([^/]+)/users");
+    private static final Pattern USERNAME = Pattern.compile("\"username\"\\s*:\\s*\"([^\"]*)\"");
+    private static final byte[] TOKEN_RESPONSE = ("{\"access_token\":\"stub-token\",\"expires_in\":300,"
+        + "\"refresh_expires_in\":0,\"token_type\":\"Bearer\",\"not-before-policy\":0,\"scope\":\"profile email\"}")
+        .getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Set<String> createdUsernames = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong userRequests = new AtomicLong();
+
+    private volatile Headers lastUserRequestHeaders = new Headers();
+
+    private volatile Duration latency = Duration.ZERO;
+
+    private volatile double errorRate;
+
+    private volatile int errorStatus = 503;
+
+    private volatile double conflictRate;
+
+    private volatile boolean rejectDuplicates;
+
+    /**
+     * Starts a stub Keycloak server on a free local port.
+     *
+     * @throws IOException if the server could not be started
+     */
+    public StubKeycloakServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * Starts a stub Keycloak server on the specified local port.
+     *
+     * @param port the port to listen on, or 0 for a free port
+     * @throws IOException if the server could not be started
+     */
+    public StubKeycloakServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Runs a stub Keycloak server until the process is stopped.
+     *
+     * <p>Arguments: {@code [port] [latency-millis] [error-rate] [conflict-rate]}.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the server could not be started
+     */
+    public static void main(String[] args) throws IOException {
+        StubKeycloakServer server = new StubKeycloakServer(args.length > 0 ? Integer.parseInt(args[0]) : 8080)
+            .latency(Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 0))
+            .errorRate(args.length > 2 ? Double.parseDouble(args[2]) : 0)
+            .conflictRate(args.length > 3 ? Double.parseDouble(args[3]) : 0);
+        System.out.println("Stub Keycloak listening on " + server.url());
+    }
+
+    /**
+     * Returns the base URL of the stub server, to be used as {@code keycloak.auth-server-url}.
+     *
+     * @return the base URL
+     */
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Sets the time each user creation takes before it is answered.
+     *
+     * @param latency the latency
+     * @return this server
+     */
+    public StubKeycloakServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of user creations that fail with {@link #errorStatus(int)}.
+     *
+     * @param errorRate the error rate, between 0 and 1
+     * @return this server
+     */
+    public StubKeycloakServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Sets the status code failed user creations are answered with, 503 by default.
+     *
+     * @param errorStatus the status code
+     * @return this server
+     */
+    public StubKeycloakServer errorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of user creations that are answered with 409 regardless of the username.
+     *
+     * @param conflictRate the conflict rate, between 0 and 1
+     * @return this server
+     */
+    public StubKeycloakServer conflictRate(double conflictRate) {
+        this.conflictRate = conflictRate;
+        return this;
+    }
+
+    /**
+     * Sets whether creating a username that was already created is answered with 409, like Keycloak does.
+     *
+     * @param rejectDuplicates whether to reject duplicate usernames
+     * @return this server
+     */
+    public StubKeycloakServer rejectDuplicates(boolean rejectDuplicates) {
+        this.rejectDuplicates = rejectDuplicates;
+        return this;
+    }
+
+    /**
+     * Returns the number of user creation requests received so far.
+     *
+     * @return the number of requests
+     */
+    public long userRequests() {
+        return userRequests.get();
+    }
+
+    /**
+     * Returns a header of the last user creation request received.
+     *
+     * @param name the name of the header
+     * @return the first value of the header, or {@code null} if the request did not have it
+     */
+    public String lastUserRequestHeader(String name) {
+        return lastUserRequestHeaders.getFirst(name);
+    }
+
+    /**
+     * Returns the usernames created so far.
+     *
+     * @return the created usernames
+     */
+    public Set<String> createdUsernames() {
+        return Set.copyOf(createdUsernames);
+    }
+
+    /**
+     * Forgets every user and request received so far.
+     */
+    public void reset() {
+        createdUsernames.clear();
+        userRequests.set(0);
+        lastUserRequestHeaders = new Headers();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String body = read(exchange.getRequestBody());
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+            } else if (TOKEN_PATH.matcher(path).matches()) {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, TOKEN_RESPONSE.length);
+                try (OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(TOKEN_RESPONSE);
+                }
+            } else if (USERS_PATH.matcher(path).matches()) {
+                exchange.sendResponseHeaders(createUser(path, body, exchange), -1);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    private int createUser(String path, String body, HttpExchange exchange) {
+        userRequests.incrementAndGet();
+        lastUserRequestHeaders = exchange.getRequestHeaders();
+        sleep(latency);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < errorRate) {
+            return errorStatus;
+        }
+        if (random.nextDouble() < conflictRate) {
+            return 409;
+        }
+        Matcher username = USERNAME.matcher(body);
+        String createdUsername = username.find() ? username.group(1) : UUID.randomUUID().toString();
+        if (!createdUsernames.add(createdUsername) && rejectDuplicates) {
+            return 409;
+        }
+        exchange.getResponseHeaders().add("Location", url() + path + "/" + UUID.randomUUID());
+        return 201;
+    }
+
+    private static String read(InputStream body) throws IOException {
+        try (body) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}